@@ -1,13 +1,21 @@
 package piwords;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeSet;
-
-import javafx.collections.transformation.SortedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class AlphabetGenerator {
+    public static final int NUM_LETTERS = 26;
+    
     /**
      * Given a numeric base, return a char[] that maps every digit that is
      * representable in that base to a lower-case char.
@@ -62,66 +70,326 @@ public class AlphabetGenerator {
     	if( base < 0 || trainingData == null )
     		return null;
 
-    	Map<Character, Integer> letterCounts = getLetterCountMapFromStringArray(trainingData);
-    	if( letterCounts.isEmpty() )
+    	long[] letterCounts = countLetters(trainingData, ForkJoinPool.commonPool());
+    	if( sum(letterCounts) == 0 )
+    		return null;
+    	
+		return transformLetterCountsToArray(letterCounts, base);
+    }
+    
+    /**
+     * Same as generateFrequencyAlphabet(base, trainingData), with the training
+     * data read from a file. The file is memory-mapped and its bytes counted
+     * in place, in parallel, so the corpus is never loaded onto the heap.
+     * 
+     * Only the ASCII letters A-Z and a-z are counted. Any ASCII-compatible
+     * encoding (ASCII, Latin-1, UTF-8) gives the same alphabet as reading
+     * the file into Strings, except for the few non-ASCII chars whose
+     * lower case is a-z, which are ignored here.
+     * 
+     * If base < 0 or trainingFile is null, return null.
+     * 
+     * @param base A numeric base to get an alphabet for.
+     * @param trainingFile A text file of training data.
+     * @return A char[] that maps every digit of the base to a char that the
+     *         digit should be translated into.
+     * @throws IOException If the file cannot be read.
+     */
+    public static char[] generateFrequencyAlphabet(int base, Path trainingFile) throws IOException
+    {
+    	if( base < 0 || trainingFile == null )
+    		return null;
+    	
+    	long[] letterCounts = countLetters(trainingFile, ForkJoinPool.commonPool());
+    	if( sum(letterCounts) == 0 )
+    		return null;
+    	
+		return transformLetterCountsToArray(letterCounts, base);
+    }
+    
+    /**
+     * Counts the occurrences of each ASCII letter, ignoring case, in the
+     * bytes of file. Entry i of the result is the count of the letter
+     * ('a' + i). The file is split into regions that are mapped and counted
+     * in parallel on pool.
+     * 
+     * If file or pool is null, return null.
+     * 
+     * @param file The file to count letters in.
+     * @param pool The pool to count on.
+     * @return The number of occurrences of each letter.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] countLetters(Path file, ForkJoinPool pool) throws IOException
+    {
+    	if( file == null || pool == null )
     		return null;
     	
-		return transformLetterCountsMapToArray(letterCounts, base);
+    	try( FileChannel channel = FileChannel.open(file, StandardOpenOption.READ) )
+    	{
+    		long size = channel.size();
+    		long leafBytes = Math.min(RegionCountTask.MAX_LEAF_BYTES, Math.max(RegionCountTask.MIN_LEAF_BYTES, 
+    				size / (pool.getParallelism() * RegionCountTask.LEAVES_PER_THREAD)));
+    		return pool.invoke(new RegionCountTask(channel, 0, size, leafBytes));
+    	}
+    	catch( UncheckedIOException e )
+    	{
+    		throw e.getCause();
+    	}
     }
+    
+    /**
+     * Maps the bytes [start, end) of a file, counts their letters in
+     * parallel and returns the merged histogram.
+     */
+    private static class RegionCountTask extends RecursiveTask<long[]>
+    {
+		private static final long serialVersionUID = 1L;
+		
+		private static final int LEAVES_PER_THREAD = 4;
+		private static final long MIN_LEAF_BYTES = 1 << 20;
+		// A mapping can be at most Integer.MAX_VALUE bytes.
+		private static final long MAX_LEAF_BYTES = 1 << 30;
+		private static final int SCRATCH_BYTES = 1 << 14;
+		
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final long leafBytes;
+		
+		RegionCountTask(FileChannel channel, long start, long end, long leafBytes)
+		{
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.leafBytes = leafBytes;
+		}
+		
+		@Override
+		protected long[] compute()
+		{
+			if( end - start <= leafBytes )
+			{
+				try
+				{
+					return countRegion();
+				}
+				catch( IOException e )
+				{
+					throw new UncheckedIOException(e);
+				}
+			}
+			
+			long mid = start + (end - start) / 2;
+			RegionCountTask right = new RegionCountTask(channel, mid, end, leafBytes);
+			right.fork();
+			long[] counts = new RegionCountTask(channel, start, mid, leafBytes).compute();
+			long[] rightCounts = right.join();
+			for( int letter=0; letter < NUM_LETTERS; ++letter )
+				counts[letter] += rightCounts[letter];
+			return counts;
+		}
+		
+		private long[] countRegion() throws IOException
+		{
+			long[] counts = new long[NUM_LETTERS];
+			if( start == end )
+				return counts;
+			
+			// Copy out through a small scratch array, which is much faster
+			// to scan than single-byte gets on the mapped buffer.
+			MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			byte[] scratch = new byte[(int)Math.min(SCRATCH_BYTES, end - start)];
+			int[] regionCounts = new int[NUM_LETTERS];
+			while( region.hasRemaining() )
+			{
+				int length = Math.min(scratch.length, region.remaining());
+				region.get(scratch, 0, length);
+				for( int i=0; i < length; ++i )
+				{
+					// Setting bit 5 lower-cases an ASCII letter, and maps no
+					// other byte into a-z.
+					int letter = ((scratch[i] & 0xFF) | 0x20) - 'a';
+					if( letter >= 0 && letter < NUM_LETTERS )
+						++regionCounts[letter];
+				}
+			}
+			for( int letter=0; letter < NUM_LETTERS; ++letter )
+				counts[letter] = regionCounts[letter];
+			return counts;
+		}
+    }
+    
+    /**
+     * Counts the occurrences of each letter a-z in trainingData, ignoring
+     * case, the same way as getLetterCountMapFromStringArray. Entry i of the
+     * result is the count of the letter ('a' + i).
+     * 
+     * Large inputs are split into ranges of words that are counted in
+     * parallel on pool, each into its own histogram, and the histograms are
+     * added up at the end.
+     * 
+     * If trainingData or pool is null, return null.
+     * 
+     * @param trainingData The words to count letters in. This array is not
+     *                     mutated.
+     * @param pool The pool to count on.
+     * @return The number of occurrences of each letter.
+     */
+    public static long[] countLetters(String[] trainingData, ForkJoinPool pool)
+    {
+    	if( trainingData == null || pool == null )
+    		return null;
+    	
+    	int leafWords = Math.max(LetterCountTask.MIN_LEAF_WORDS, 
+    			trainingData.length / (pool.getParallelism() * LetterCountTask.LEAVES_PER_THREAD));
+    	return pool.invoke(new LetterCountTask(trainingData, 0, trainingData.length, leafWords));
+    }
+    
+    /**
+     * Counts the letters of trainingData[start..end) in parallel and returns
+     * the merged histogram.
+     */
+    private static class LetterCountTask extends RecursiveTask<long[]>
+    {
+		private static final long serialVersionUID = 1L;
+		
+		private static final int LEAVES_PER_THREAD = 4;
+		private static final int MIN_LEAF_WORDS = 1 << 12;
+		
+		private final String[] words;
+		private final int start;
+		private final int end;
+		private final int leafWords;
+		
+		LetterCountTask(String[] words, int start, int end, int leafWords)
+		{
+			this.words = words;
+			this.start = start;
+			this.end = end;
+			this.leafWords = leafWords;
+		}
+		
+		@Override
+		protected long[] compute()
+		{
+			if( end - start <= leafWords )
+			{
+				long[] counts = new long[NUM_LETTERS];
+				for( int i=start; i < end; ++i )
+					addLetterCounts(counts, words[i]);
+				return counts;
+			}
+			
+			int mid = start + (end - start) / 2;
+			LetterCountTask right = new LetterCountTask(words, mid, end, leafWords);
+			right.fork();
+			long[] counts = new LetterCountTask(words, start, mid, leafWords).compute();
+			long[] rightCounts = right.join();
+			for( int letter=0; letter < NUM_LETTERS; ++letter )
+				counts[letter] += rightCounts[letter];
+			return counts;
+		}
+    }
+    
+	/**
+	 * Adds the letters a-z of word, ignoring case, to counts. ASCII is
+	 * handled without calling into Character, which is only needed for
+	 * the rare non-ASCII chars whose lower case is a-z.
+	 */
+	private static void addLetterCounts(long[] counts, String word)
+	{
+		for( int letterPos=0; letterPos < word.length(); ++letterPos )
+		{
+			char letter = word.charAt(letterPos);
+			if( letter >= 0x80 )
+				letter = Character.toLowerCase(letter);
+			else if( letter >= 'A' && letter <= 'Z' )
+				letter += 'a' - 'A';
+			if( isLetterLowercaseAtoZ(letter) )
+				++counts[letter - 'a'];
+		}
+	}
+	
+	private static long sum(long[] counts)
+	{
+		long total = 0;
+		for( long count : counts )
+			total += count;
+		return total;
+	}
+	
+	/**
+	 * Same as transformLetterCountsMapToArray, with the count of the letter
+	 * ('a' + i) in letterCounts[i].
+	 * 
+	 * @param letterCounts The number of occurrences of each letter a-z.
+	 * @param size The length of the alphabet to generate.
+	 * @return The alphabet, with letters in ascending order.
+	 */
+	public static char[] transformLetterCountsToArray(long[] letterCounts, int size)
+	{
+		char[] letters = new char[NUM_LETTERS];
+		for( int i=0; i < NUM_LETTERS; ++i )
+			letters[i] = (char)('a' + i);
+		return buildAlphabet(letters, letterCounts, sum(letterCounts), size);
+	}
 
 	public static char[] transformLetterCountsMapToArray(Map<Character, Integer> letterCounts, int size) 
 	{
-		float cumulativeEndpoint = 0;
-    	String outputString = "";
-		int totalLetterCount = getTotalLetterCount(letterCounts);
+		char[] letters = new char[letterCounts.size()];
+		long[] counts = new long[letterCounts.size()];
+		int i = 0;
 	    for( char letter : new TreeSet<Character>(letterCounts.keySet()))
     	{
-			float lastcumulativeEndpoint = cumulativeEndpoint;
-			cumulativeEndpoint += (float) letterCounts.get(letter) / totalLetterCount * size;
-			outputString += createSimpleString(letter, Math.round(cumulativeEndpoint) - Math.round(lastcumulativeEndpoint));
+	    	letters[i] = letter;
+	    	counts[i++] = letterCounts.get(letter);
     	}
-		return outputString.toCharArray();
+		return buildAlphabet(letters, counts, getTotalLetterCount(letterCounts), size);
 	}
-
+	
 	/**
-	 * returns string of given length with given letters.
-	 * example: createSimpleString('a', 3) returns "aaa"
+	 * Gives each of letters, which are in ascending order, a run of the
+	 * output proportional to its count. The run of letters[i] ends at
+	 * round(CDF(letters[i]) * size), with the CDF accumulated in float.
 	 */
-	private static String createSimpleString(char letter, int stringLength) 
+	private static char[] buildAlphabet(char[] letters, long[] counts, long totalLetterCount, int size)
 	{
-		char[] outputArray = new char[stringLength];
-		Arrays.fill(outputArray, letter);
-		return new String(outputArray);
+		int[] runEnds = new int[letters.length];
+		float cumulativeEndpoint = 0;
+		for( int i=0; i < letters.length; ++i )
+		{
+			cumulativeEndpoint += (float) counts[i] / totalLetterCount * size;
+			runEnds[i] = Math.round(cumulativeEndpoint);
+		}
+		
+		char[] output = new char[letters.length == 0 ? 0 : runEnds[letters.length - 1]];
+		int runStart = 0;
+		for( int i=0; i < letters.length; ++i )
+		{
+			Arrays.fill(output, runStart, runEnds[i], letters[i]);
+			runStart = runEnds[i];
+		}
+		return output;
 	}
 
 	public static Map<Character, Integer> getLetterCountMapFromStringArray(String[] trainingData) 
 	{
-		Map<Character, Integer> letterCounts = new HashMap<Character, Integer>();
+		long[] counts = new long[NUM_LETTERS];
 		for(int wordPos=0; wordPos < trainingData.length; ++wordPos)
-			updateLetterCountMapWithWord(letterCounts, trainingData[wordPos]);
+			addLetterCounts(counts, trainingData[wordPos]);
+		
+		Map<Character, Integer> letterCounts = new HashMap<Character, Integer>();
+		for( int i=0; i < NUM_LETTERS; ++i )
+			if( counts[i] > 0 )
+				letterCounts.put((char)('a' + i), (int)counts[i]);
 		return letterCounts;
 	}
-
-	private static void updateLetterCountMapWithWord(Map<Character, Integer> letterCounts, String word) 
-	{
-		word = word.toLowerCase();
-		for(int letterPos=0; letterPos < word.length(); ++letterPos)
-			if( isLetterLowercaseAtoZ(word.charAt(letterPos)) )
-				incrementLetterCount(letterCounts, word.charAt(letterPos));
-	}
 	
 	private static boolean isLetterLowercaseAtoZ(char letter)
 	{
 		return( letter >= 'a' && letter <= 'z' );
 	}
-
-	private static void incrementLetterCount(Map<Character, Integer> letterCounts, char letter) 
-	{
-		if( letterCounts.containsKey(letter) )
-			letterCounts.put(letter, letterCounts.get(letter)+1);
-		else
-			letterCounts.put(letter, 1);
-	}
 	
 	public static int getTotalLetterCount(Map<Character, Integer> letterCountMap)
 	{
@@ -2,8 +2,15 @@ package piwords;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
@@ -204,4 +211,93 @@ public class AlphabetGeneratorTest
 		assertTransformLetterCountsMapToArrayOutput(inputMap, 6, "aadhrz".toCharArray());
 		assertTransformLetterCountsMapToArrayOutput(inputMap, 12, "aaaaddhhrrzz".toCharArray());
 	}
+	
+	@Test
+	public void countLettersTest()
+	{
+		long[] expected = new long[AlphabetGenerator.NUM_LETTERS];
+		expected['h' - 'a'] = 1;
+		expected['e' - 'a'] = 1;
+		expected['l' - 'a'] = 3;
+		expected['o' - 'a'] = 2;
+		expected['w' - 'a'] = 1;
+		expected['r' - 'a'] = 1;
+		expected['d' - 'a'] = 1;
+		expected['i' - 'a'] = 1;
+		expected['k' - 'a'] = 1;
+		// U+0130 and U+212A lower-case to 'i' and 'k'; U+00E9 is not a-z.
+		assertArrayEquals(expected, AlphabetGenerator.countLetters(
+				new String[] {"Hello, ", "World!", "\u0130\u212A\u00e9"}, ForkJoinPool.commonPool()));
+		assertNull(AlphabetGenerator.countLetters((String[])null, ForkJoinPool.commonPool()));
+	}
+	
+	@Test
+	public void countLettersTest_ParallelMatchesMap()
+	{
+		// Enough words to be split across several tasks.
+		Random random = new Random(6005);
+		String[] trainingData = new String[100000];
+		for( int i=0; i < trainingData.length; ++i )
+		{
+			char[] word = new char[1 + random.nextInt(8)];
+			for( int j=0; j < word.length; ++j )
+				word[j] = (char)(' ' + random.nextInt(96));
+			trainingData[i] = new String(word);
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			long[] counts = AlphabetGenerator.countLetters(trainingData, pool);
+			Map<Character, Integer> letterCounts = AlphabetGenerator.getLetterCountMapFromStringArray(trainingData);
+			for( int i=0; i < AlphabetGenerator.NUM_LETTERS; ++i )
+				assertEquals(letterCounts.get((char)('a' + i)).longValue(), counts[i]);
+			for( int base=1; base <= 100; ++base )
+				assertArrayEquals(AlphabetGenerator.transformLetterCountsMapToArray(letterCounts, base),
+								  AlphabetGenerator.transformLetterCountsToArray(counts, base));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void generateFrequencyAlphabetTest_File() throws IOException
+	{
+		File file = File.createTempFile("training", ".txt");
+		try
+		{
+			Path path = file.toPath();
+			Files.write(path, "aa\nbbc\n".getBytes(StandardCharsets.US_ASCII));
+			assertArrayEquals("aaaabbbbcc".toCharArray(), AlphabetGenerator.generateFrequencyAlphabet(10, path));
+			assertNull(AlphabetGenerator.generateFrequencyAlphabet(-1, path));
+			
+			// Large enough to be split into several mapped regions.
+			Random random = new Random(6005);
+			StringBuilder text = new StringBuilder();
+			while( text.length() < 3 << 20 )
+				text.append((char)(' ' + random.nextInt(95)));
+			Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+			String[] trainingData = {text.toString()};
+			for( int base=1; base <= 100; base += 7 )
+				assertArrayEquals(AlphabetGenerator.generateFrequencyAlphabet(base, trainingData),
+								  AlphabetGenerator.generateFrequencyAlphabet(base, path));
+			
+			Files.write(path, "123 !?".getBytes(StandardCharsets.US_ASCII));
+			assertNull(AlphabetGenerator.generateFrequencyAlphabet(10, path));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void generateFrequencyAlphabetTest_MissingFile() throws IOException
+	{
+		File file = File.createTempFile("training", ".txt");
+		file.delete();
+		AlphabetGenerator.generateFrequencyAlphabet(10, file.toPath());
+	}
 }
@@ -0,0 +1,403 @@
+package piwords;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches for an alphabet that makes the digits of pi in some base spell
+ * as many words as possible, which is the word coverage Main reports.
+ * AlphabetGenerator's frequency alphabet is a good start, but coverage can
+ * be raised a lot further by trying changes and keeping those that help.
+ * 
+ * The search is simulated annealing over alphabets: each step gives one
+ * digit a different letter. Scoring a step does not rescan the text. Only
+ * the positions holding that digit change, so only the words that could
+ * start within maxWordLength - 1 characters before them are removed with
+ * the old letter and looked up again with the new one. This makes a step
+ * cost about (text length / base) * maxWordLength trie walks instead of a
+ * whole search.
+ * 
+ * An AlphabetOptimizer is immutable and can be shared between threads;
+ * each search keeps its own state.
+ */
+public class AlphabetOptimizer 
+{
+	private static final int LETTERS = AlphabetGenerator.NUM_LETTERS;
+	
+	private static final double START_TEMPERATURE = 1.0;
+	private static final double END_TEMPERATURE = 0.02;
+	
+	private final int[] digits;
+	private final int base;
+	private final int numWords;
+	
+	// The positions of digits holding digit d are
+	// digitPositions[digitStart[d]..digitStart[d+1]).
+	private final int[] digitStart;
+	private final int[] digitPositions;
+	
+	// A trie of the distinct words: children[LETTERS * node + letter] is 0
+	// for no child, and wordAt[node] is the word ending at node or -1.
+	private final int[] children;
+	private final int[] wordAt;
+	private final int maxWordLength;
+	
+	/**
+	 * Prepares to search for alphabets for the given digits. Words that are
+	 * null, empty, or not all a-z can never be spelled, and duplicate words
+	 * only count once.
+	 * 
+	 * @param digits The digits of pi in base, which are not mutated.
+	 * @param base The base of digits.
+	 * @param words The words to spell. This array is not mutated.
+	 * @throws IllegalArgumentException If base < 1 or a digit is not in
+	 *         [0, base).
+	 */
+	public AlphabetOptimizer(int[] digits, int base, String[] words)
+	{
+		if( base < 1 )
+			throw new IllegalArgumentException("base < 1: " + base);
+		
+		this.digits = digits.clone();
+		this.base = base;
+		
+		digitStart = new int[base + 1];
+		for( int digit : digits )
+		{
+			if( digit < 0 || digit >= base )
+				throw new IllegalArgumentException("Digit " + digit + " not in base " + base);
+			++digitStart[digit + 1];
+		}
+		for( int d=0; d < base; ++d )
+			digitStart[d + 1] += digitStart[d];
+		digitPositions = new int[digits.length];
+		int[] filled = Arrays.copyOf(digitStart, base);
+		for( int i=0; i < digits.length; ++i )
+			digitPositions[filled[digits[i]]++] = i;
+		
+		Set<String> distinct = new HashSet<String>();
+		int maxNodes = 1;
+		int maxLength = 0;
+		for( String word : words )
+		{
+			if( isSpellable(word) && distinct.add(word) )
+			{
+				maxNodes += word.length();
+				maxLength = Math.max(maxLength, word.length());
+			}
+		}
+		numWords = distinct.size();
+		maxWordLength = maxLength;
+		
+		int[] trie = new int[maxNodes * LETTERS];
+		int[] ends = new int[maxNodes];
+		Arrays.fill(ends, -1);
+		int nodes = 1;
+		int id = 0;
+		for( String word : distinct )
+		{
+			int node = 0;
+			for( int i=0; i < word.length(); ++i )
+			{
+				int edge = node * LETTERS + word.charAt(i) - 'a';
+				if( trie[edge] == 0 )
+					trie[edge] = nodes++;
+				node = trie[edge];
+			}
+			ends[node] = id++;
+		}
+		children = Arrays.copyOf(trie, nodes * LETTERS);
+		wordAt = Arrays.copyOf(ends, nodes);
+	}
+	
+	private static boolean isSpellable(String word)
+	{
+		if( word == null || word.isEmpty() )
+			return false;
+		for( int i=0; i < word.length(); ++i )
+			if( word.charAt(i) < 'a' || word.charAt(i) > 'z' )
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Returns the number of distinct words found in the digits written with
+	 * alphabet.
+	 * 
+	 * If alphabet does not have base entries, all a-z, return -1.
+	 * 
+	 * @param alphabet The letter for each digit.
+	 * @return The number of words covered.
+	 */
+	public int coverage(char[] alphabet)
+	{
+		if( !isValidAlphabet(alphabet) )
+			return -1;
+		return new Search(alphabet).covered();
+	}
+	
+	/**
+	 * Runs simulated annealing for the given number of steps, starting from
+	 * initialAlphabet, and returns the alphabet with the highest coverage
+	 * seen. The result is never worse than initialAlphabet. The same seed
+	 * always gives the same result.
+	 * 
+	 * If initialAlphabet does not have base entries, all a-z, or
+	 * steps < 0, return null.
+	 * 
+	 * @param initialAlphabet The alphabet to start from, which is not
+	 *                        mutated.
+	 * @param steps The number of changes to try.
+	 * @param seed The seed for the random changes.
+	 * @return The best alphabet found.
+	 */
+	public char[] optimize(char[] initialAlphabet, long steps, long seed)
+	{
+		if( !isValidAlphabet(initialAlphabet) || steps < 0 )
+			return null;
+		return new Search(initialAlphabet).anneal(steps, new Random(seed));
+	}
+	
+	/**
+	 * Same as optimize(initialAlphabet, steps, seed), but runs one
+	 * independent search per thread of pool, each with its own seed, and
+	 * returns the best of their results.
+	 * 
+	 * If initialAlphabet does not have base entries, all a-z, steps < 0,
+	 * or pool is null, return null.
+	 * 
+	 * @param initialAlphabet The alphabet to start from, which is not
+	 *                        mutated.
+	 * @param steps The number of changes each search tries.
+	 * @param seed The seed the searches' seeds are derived from.
+	 * @param pool The pool to run the searches on.
+	 * @return The best alphabet found.
+	 */
+	public char[] optimize(char[] initialAlphabet, long steps, long seed, ForkJoinPool pool)
+	{
+		if( !isValidAlphabet(initialAlphabet) || steps < 0 || pool == null )
+			return null;
+		
+		Random seeds = new Random(seed);
+		SearchTask[] searches = new SearchTask[pool.getParallelism()];
+		for( int i=0; i < searches.length; ++i )
+		{
+			searches[i] = new SearchTask(initialAlphabet, steps, seeds.nextLong());
+			pool.execute(searches[i]);
+		}
+		
+		char[] best = null;
+		int bestCoverage = -1;
+		for( int i=0; i < searches.length; ++i )
+		{
+			char[] alphabet = searches[i].join();
+			int covered = coverage(alphabet);
+			if( covered > bestCoverage )
+			{
+				best = alphabet;
+				bestCoverage = covered;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * One independent search for the parallel optimize.
+	 */
+	private class SearchTask extends RecursiveTask<char[]>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final char[] initialAlphabet;
+		private final long steps;
+		private final long seed;
+		
+		SearchTask(char[] initialAlphabet, long steps, long seed)
+		{
+			this.initialAlphabet = initialAlphabet;
+			this.steps = steps;
+			this.seed = seed;
+		}
+		
+		@Override
+		protected char[] compute()
+		{
+			return optimize(initialAlphabet, steps, seed);
+		}
+	}
+	
+	/**
+	 * @return The number of distinct spellable words, which is the highest
+	 *         possible coverage.
+	 */
+	public int numWords()
+	{
+		return numWords;
+	}
+	
+	private boolean isValidAlphabet(char[] alphabet)
+	{
+		if( alphabet == null || alphabet.length != base )
+			return false;
+		for( char letter : alphabet )
+			if( letter < 'a' || letter > 'z' )
+				return false;
+		return true;
+	}
+	
+	/**
+	 * The state of one search: the current alphabet, the text it spells as
+	 * letter indexes, and how many times each word occurs in that text.
+	 */
+	class Search
+	{
+		private final byte[] alphabet;
+		private final byte[] text;
+		private final int[] occurrences;
+		private int covered;
+		
+		// Marks the start positions already collected for the current
+		// change, which is the one numbered epoch.
+		private final int[] visited;
+		private int epoch;
+		private int[] starts = new int[16];
+		
+		Search(char[] initialAlphabet)
+		{
+			alphabet = new byte[base];
+			for( int d=0; d < base; ++d )
+				alphabet[d] = (byte)(initialAlphabet[d] - 'a');
+			text = new byte[digits.length];
+			for( int i=0; i < digits.length; ++i )
+				text[i] = alphabet[digits[i]];
+			occurrences = new int[numWords];
+			visited = new int[digits.length];
+			for( int start=0; start < text.length; ++start )
+				countWordsAt(start, 1);
+		}
+		
+		int covered()
+		{
+			return covered;
+		}
+		
+		char[] alphabet()
+		{
+			char[] letters = new char[base];
+			for( int d=0; d < base; ++d )
+				letters[d] = (char)('a' + alphabet[d]);
+			return letters;
+		}
+		
+		/**
+		 * Spells digit with letter (0 for 'a') and returns the new
+		 * coverage, rescanning only the words that could include a
+		 * position holding digit.
+		 */
+		int changeLetter(int digit, int letter)
+		{
+			if( alphabet[digit] == letter )
+				return covered;
+			
+			int numStarts = collectStarts(digit);
+			for( int i=0; i < numStarts; ++i )
+				countWordsAt(starts[i], -1);
+			alphabet[digit] = (byte)letter;
+			for( int i=digitStart[digit]; i < digitStart[digit + 1]; ++i )
+				text[digitPositions[i]] = (byte)letter;
+			for( int i=0; i < numStarts; ++i )
+				countWordsAt(starts[i], 1);
+			return covered;
+		}
+		
+		/**
+		 * Collects into starts every position at which a word covering a
+		 * position holding digit could start, each once.
+		 * 
+		 * @return The number of starts collected.
+		 */
+		private int collectStarts(int digit)
+		{
+			if( ++epoch == 0 )
+			{
+				Arrays.fill(visited, 0);
+				epoch = 1;
+			}
+			int count = 0;
+			for( int i=digitStart[digit]; i < digitStart[digit + 1]; ++i )
+			{
+				int position = digitPositions[i];
+				for( int start=Math.max(0, position - maxWordLength + 1); start <= position; ++start )
+				{
+					if( visited[start] == epoch )
+						continue;
+					visited[start] = epoch;
+					if( count == starts.length )
+						starts = Arrays.copyOf(starts, 2 * count);
+					starts[count++] = start;
+				}
+			}
+			return count;
+		}
+		
+		/**
+		 * Adds delta to the occurrence count of every word that starts at
+		 * start, keeping covered up to date.
+		 */
+		private void countWordsAt(int start, int delta)
+		{
+			int node = 0;
+			int end = Math.min(text.length, start + maxWordLength);
+			for( int i=start; i < end; ++i )
+			{
+				node = children[node * LETTERS + text[i]];
+				if( node == 0 )
+					return;
+				int word = wordAt[node];
+				if( word < 0 )
+					continue;
+				if( delta > 0 && occurrences[word]++ == 0 )
+					++covered;
+				else if( delta < 0 && --occurrences[word] == 0 )
+					--covered;
+			}
+		}
+		
+		/**
+		 * Tries steps random letter changes, always keeping those that do
+		 * not lower coverage and keeping the others with a probability that
+		 * shrinks as the temperature cools, and returns the best alphabet
+		 * seen.
+		 */
+		char[] anneal(long steps, Random random)
+		{
+			char[] best = alphabet();
+			int bestCoverage = covered;
+			double cooling = steps > 0 ? Math.pow(END_TEMPERATURE / START_TEMPERATURE, 1.0 / steps) : 1;
+			double temperature = START_TEMPERATURE;
+			for( long step=0; step < steps; ++step, temperature *= cooling )
+			{
+				int digit = random.nextInt(base);
+				int oldLetter = alphabet[digit];
+				int newLetter = (oldLetter + 1 + random.nextInt(LETTERS - 1)) % LETTERS;
+				int before = covered;
+				int after = changeLetter(digit, newLetter);
+				if( after < before && random.nextDouble() >= Math.exp((after - before) / temperature) )
+				{
+					changeLetter(digit, oldLetter);
+					continue;
+				}
+				if( after > bestCoverage )
+				{
+					best = alphabet();
+					bestCoverage = after;
+				}
+			}
+			return best;
+		}
+	}
+}
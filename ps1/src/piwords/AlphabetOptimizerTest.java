@@ -0,0 +1,92 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class AlphabetOptimizerTest 
+{
+	private static final int PRECISION = 2000;
+	private static final int BASE = 100;
+	
+	private int[] piDigits()
+	{
+		int[] hex = PiGenerator.computePiInHex(PRECISION);
+		return BaseTranslator.convertBase(hex, 16, BASE, PRECISION);
+	}
+	
+	private int wordFinderCoverage(int[] digits, char[] alphabet)
+	{
+		String text = DigitsToStringConverter.convertDigitsToString(digits, BASE, alphabet);
+		return WordFinder.getSubstrings(text, Main.WORD_LIST).size();
+	}
+	
+    @Test
+    public void coverageTest_MatchesWordFinder()
+    {
+    	int[] digits = piDigits();
+    	AlphabetOptimizer optimizer = new AlphabetOptimizer(digits, BASE, Main.WORD_LIST);
+    	char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(BASE, Main.WORD_LIST);
+    	assertEquals(wordFinderCoverage(digits, alphabet), optimizer.coverage(alphabet));
+    	
+    	assertEquals(-1, optimizer.coverage(new char[BASE - 1]));
+    	alphabet[0] = 'A';
+    	assertEquals(-1, optimizer.coverage(alphabet));
+    }
+    
+    @Test
+    public void changeLetterTest_MatchesFullRescan()
+    {
+    	int[] digits = piDigits();
+    	AlphabetOptimizer optimizer = new AlphabetOptimizer(digits, BASE, Main.WORD_LIST);
+    	AlphabetOptimizer.Search search = optimizer.new Search(
+    			AlphabetGenerator.generateFrequencyAlphabet(BASE, Main.WORD_LIST));
+    	
+    	Random random = new Random(6005);
+    	for( int i=0; i < 200; ++i )
+    	{
+    		int covered = search.changeLetter(random.nextInt(BASE), random.nextInt(26));
+    		assertEquals(optimizer.coverage(search.alphabet()), covered);
+    	}
+    	assertEquals(wordFinderCoverage(digits, search.alphabet()), search.covered());
+    }
+    
+    @Test
+    public void optimizeTest_ImprovesCoverage()
+    {
+    	int[] digits = piDigits();
+    	AlphabetOptimizer optimizer = new AlphabetOptimizer(digits, BASE, Main.WORD_LIST);
+    	char[] initial = AlphabetGenerator.generateFrequencyAlphabet(BASE, Main.WORD_LIST);
+    	char[] initialCopy = initial.clone();
+    	
+    	char[] optimized = optimizer.optimize(initial, 20000, 6005);
+    	assertArrayEquals(initialCopy, initial);
+    	assertArrayEquals(optimized, optimizer.optimize(initial, 20000, 6005));
+    	assertTrue(optimizer.coverage(optimized) > optimizer.coverage(initial));
+    	assertEquals(optimizer.coverage(optimized), wordFinderCoverage(digits, optimized));
+    	
+    	ForkJoinPool pool = new ForkJoinPool(2);
+    	try
+    	{
+    		char[] parallel = optimizer.optimize(initial, 5000, 6005, pool);
+    		assertTrue(optimizer.coverage(parallel) >= optimizer.coverage(initial));
+    	}
+    	finally
+    	{
+    		pool.shutdown();
+    	}
+    	
+    	assertNull(optimizer.optimize(initial, -1, 6005));
+    	assertNull(optimizer.optimize(null, 10, 6005));
+    	assertNull(optimizer.optimize(initial, 10, 6005, null));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_DigitOutOfRange()
+    {
+    	new AlphabetOptimizer(new int[] {0, 5}, 5, Main.WORD_LIST);
+    }
+}
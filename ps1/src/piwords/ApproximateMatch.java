@@ -0,0 +1,49 @@
+package piwords;
+
+/**
+ * Where a needle was found with some mismatched characters: the index of
+ * the haystack at which the match starts and the number of characters that
+ * differ from the needle (the Hamming distance).
+ */
+public class ApproximateMatch 
+{
+	private final int index;
+	private final int distance;
+	
+	public ApproximateMatch(int index, int distance)
+	{
+		this.index = index;
+		this.distance = distance;
+	}
+	
+	public int index()
+	{
+		return index;
+	}
+	
+	public int distance()
+	{
+		return distance;
+	}
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		if( !(other instanceof ApproximateMatch) )
+			return false;
+		ApproximateMatch match = (ApproximateMatch)other;
+		return index == match.index && distance == match.distance;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return 31 * index + distance;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "(" + index + ", " + distance + ")";
+	}
+}
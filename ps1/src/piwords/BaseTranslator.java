@@ -1,5 +1,10 @@
 package piwords;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
 public class BaseTranslator {
     /**
      * Converts an array where the ith digit corresponds to (1 / baseA)^(i + 1)
@@ -36,16 +41,55 @@ public class BaseTranslator {
     	if( precisionB < 1 || baseA < 2 || baseB < 2 )
     		return null;
 
-    	int[] workingDigits = digits.clone();
-    	int[] output = new int[precisionB];
+    	return convertBase(digits, baseA, baseB, precisionB, new int[digits.length], new int[precisionB]);
+    }
+    
+    /**
+     * Same as convertBase(int[], int, int, int), but allocates nothing: the
+     * digits are copied into workingDigits and the result is written into
+     * output, both supplied by the caller and reusable across calls. The
+     * input is validated once up front rather than inside the conversion
+     * loop.
+     * 
+     * workingDigits may be digits itself, in which case the conversion runs
+     * in place and digits is consumed. Either way, on return the first
+     * digits.length entries of workingDigits hold the fraction left over
+     * after the precisionB output digits were taken off, in baseA.
+     * 
+     * If digits[i] < 0 or digits[i] >= baseA for any i, return null
+     * If baseA < 2, baseB < 2, or precisionB < 1, return null
+     * If workingDigits.length < digits.length or output.length < precisionB,
+     * return null
+     * 
+     * @param digits The input array to translate. This array is not mutated
+     *               unless it is also passed as workingDigits.
+     * @param baseA The base that the input array is expressed in.
+     * @param baseB The base to translate into.
+     * @param precisionB The number of digits of precision the output should
+     *                   have.
+     * @param workingDigits Scratch space for the conversion.
+     * @param output Where to write the output digits.
+     * @return output, whose first precisionB entries express digits in baseB.
+     */
+    public static int[] convertBase(int[] digits, int baseA, int baseB, int precisionB,
+    								int[] workingDigits, int[] output)
+    {
+    	if( precisionB < 1 || baseA < 2 || baseB < 2 || 
+    		workingDigits.length < digits.length || output.length < precisionB )
+    		return null;
+    	
+    	for( int i=0; i < digits.length; ++i )
+    		if( digits[i] < 0 || digits[i] >= baseA )
+    			return null;
+    	
+    	if( workingDigits != digits )
+    		System.arraycopy(digits, 0, workingDigits, 0, digits.length);
+    	
     	for( int outputIter=0; outputIter < precisionB; ++outputIter )
     	{
     		int carry = 0;
-    		for( int digitsIter=workingDigits.length-1; digitsIter >= 0; --digitsIter )
+    		for( int digitsIter=digits.length-1; digitsIter >= 0; --digitsIter )
     		{
-        		if( workingDigits[digitsIter] < 0 || digits[digitsIter] >= baseA )
-        			return null;
-        		
     			int intermediate = workingDigits[digitsIter] * baseB + carry;
     			carry = intermediate / baseA;
     			workingDigits[digitsIter] = intermediate % baseA;
@@ -55,4 +99,279 @@ public class BaseTranslator {
     	
         return output;
     }
+    
+    /**
+     * Same as convertBase(int[], int, int, int), but on packed digit arrays,
+     * so that long inputs and outputs take a fraction of the memory and the
+     * inner loop walks bytes instead of ints. The output length is a long
+     * and the result is packed for baseB.
+     * 
+     * If digits[i] < 0 or digits[i] >= baseA for any i, return null
+     * If baseA < 2, baseB < 2, or precisionB < 1, return null
+     * If baseA > digits.maxBase() or baseB > PackedDigits.MAX_BASE, return null
+     * 
+     * @param digits The input array to translate. This array is not mutated.
+     * @param baseA The base that the input array is expressed in.
+     * @param baseB The base to translate into.
+     * @param precisionB The number of digits of precision the output should
+     *                   have.
+     * @return An array of size precisionB expressing digits in baseB.
+     */
+    public static PackedDigits convertBase(PackedDigits digits, int baseA, int baseB, long precisionB)
+    {
+    	if( precisionB < 1 || baseA < 2 || baseB < 2 || baseA > digits.maxBase() )
+    		return null;
+    	
+    	for( long i=0; i < digits.length(); ++i )
+    		if( digits.get(i) >= baseA )
+    			return null;
+    	
+    	PackedDigits output = PackedDigits.forBase(baseB, precisionB);
+    	if( output == null )
+    		return null;
+    	
+    	PackedDigits workingDigits = digits.copy();
+    	for( long outputIter=0; outputIter < precisionB; ++outputIter )
+    		output.set(outputIter, (int)workingDigits.multiplyFraction(baseB, baseA));
+    	
+    	return output;
+    }
+    
+    /**
+     * Same as convertBase(int[], int, int, int), with identical output, but
+     * runs the multiply-carry loop on word-sized limbs instead of single
+     * digits.
+     * 
+     * The input is first regrouped into limbs of k base-baseA digits each
+     * (padding the last limb with zeros on the right, which does not change
+     * the fraction), so each limb is a digit in base baseA^k. Each pass then
+     * multiplies the whole fraction by baseB^j, and the carry out of the top
+     * is the next j output digits at once. k and j are chosen so that
+     * baseA^k * baseB^j fits in a long, which cuts the number of inner loop
+     * iterations by a factor of about k * j.
+     * 
+     * If digits[i] < 0 or digits[i] >= baseA for any i, return null
+     * If baseA < 2, baseB < 2, or precisionB < 1, return null
+     * 
+     * @param digits The input array to translate. This array is not mutated.
+     * @param baseA The base that the input array is expressed in.
+     * @param baseB The base to translate into.
+     * @param precisionB The number of digits of precision the output should
+     *                   have.
+     * @return An array of size precisionB expressing digits in baseB.
+     */
+    public static int[] convertBaseWithLimbs(int[] digits, int baseA, int baseB, int precisionB)
+    {
+    	final int[] output = new int[Math.max(0, precisionB)];
+    	IntConsumer writer = new IntConsumer()
+    	{
+    		private int outputIter = 0;
+    		
+			@Override
+			public void accept(int digit) 
+			{
+				output[outputIter++] = digit;
+			}
+    	};
+    	
+    	return convertBaseWithLimbs(digits, baseA, baseB, precisionB, writer) ? output : null;
+    }
+    
+    /**
+     * Same as convertBaseWithLimbs(int[], int, int, int), but instead of
+     * collecting the output digits into an array, passes each one to sink
+     * as soon as it is computed, most significant first. Callers that only
+     * need to look at each digit once, such as a search over the text they
+     * spell, never need to hold the whole output.
+     * 
+     * If digits[i] < 0 or digits[i] >= baseA for any i, return false
+     * If baseA < 2, baseB < 2, or precisionB < 1, return false
+     * 
+     * @param digits The input array to translate. This array is not mutated.
+     * @param baseA The base that the input array is expressed in.
+     * @param baseB The base to translate into.
+     * @param precisionB The number of digits of precision the output should
+     *                   have.
+     * @param sink Receives the precisionB output digits in order.
+     * @return Whether the input was valid, so that digits were produced.
+     */
+    public static boolean convertBaseWithLimbs(int[] digits, int baseA, int baseB, int precisionB,
+    										   IntConsumer sink)
+    {
+    	if( precisionB < 1 || baseA < 2 || baseB < 2 )
+    		return false;
+    	
+    	for( int i=0; i < digits.length; ++i )
+    		if( digits[i] < 0 || digits[i] >= baseA )
+    			return false;
+    	
+    	int digitsPerLimb = digitsBelow(baseA, 1L << 32);
+    	int outputDigitsPerPass = digitsBelow(baseB, 1L << 31);
+    	long limbBase = power(baseA, digitsPerLimb);
+    	long multiplier = power(baseB, outputDigitsPerPass);
+    	
+    	long[] limbs = new long[(digits.length + digitsPerLimb - 1) / digitsPerLimb];
+    	for( int i=0; i < limbs.length * digitsPerLimb; ++i )
+    		limbs[i / digitsPerLimb] = limbs[i / digitsPerLimb] * baseA + (i < digits.length ? digits[i] : 0);
+    	
+    	int[] passDigits = new int[outputDigitsPerPass];
+    	for( int outputIter=0; outputIter < precisionB; outputIter += outputDigitsPerPass )
+    	{
+    		long carry = 0;
+    		for( int limbIter=limbs.length-1; limbIter >= 0; --limbIter )
+    		{
+    			long intermediate = limbs[limbIter] * multiplier + carry;
+    			carry = intermediate / limbBase;
+    			limbs[limbIter] = intermediate % limbBase;
+    		}
+    		
+    		// carry holds the next outputDigitsPerPass digits, least
+    		// significant last; the final pass may not need all of them.
+    		for( int i=outputDigitsPerPass-1; i >= 0; --i )
+    		{
+    			passDigits[i] = (int)(carry % baseB);
+    			carry /= baseB;
+    		}
+    		for( int i=0; i < outputDigitsPerPass && outputIter + i < precisionB; ++i )
+    			sink.accept(passDigits[i]);
+    	}
+    	
+    	return true;
+    }
+    
+    /**
+     * Returns the largest count >= 1 such that base^count <= limit. Runs of
+     * digitsBelow(base, Long.MAX_VALUE) digits always fit in a long.
+     */
+    private static int digitsBelow(int base, long limit)
+    {
+    	int count = 1;
+    	for( long power=base; power <= limit / base; power *= base )
+    		++count;
+    	return count;
+    }
+    
+    private static long power(int base, int exponent)
+    {
+    	long result = 1;
+    	for( int i=0; i < exponent; ++i )
+    		result *= base;
+    	return result;
+    }
+    
+    /**
+     * Same as convertBase(int[], int, int, int), with identical output, but
+     * converts the whole fraction at once instead of one output digit at a
+     * time.
+     * 
+     * The input digits are read as one integer N, so that the number is
+     * N / baseA^len. The output digits are then the precisionB base-baseB
+     * digits of floor(N * baseB^precisionB / baseA^len). Reading N and
+     * writing out the result are both done by divide and conquer around
+     * powers base^(2^k), so with BigInteger's subquadratic multiplication
+     * and division the whole conversion takes O(M(n) log n) instead of
+     * O(len * precisionB).
+     * 
+     * If digits[i] < 0 or digits[i] >= baseA for any i, return null
+     * If baseA < 2, baseB < 2, or precisionB < 1, return null
+     * 
+     * @param digits The input array to translate. This array is not mutated.
+     * @param baseA The base that the input array is expressed in.
+     * @param baseB The base to translate into.
+     * @param precisionB The number of digits of precision the output should
+     *                   have.
+     * @return An array of size precisionB expressing digits in baseB.
+     */
+    public static int[] convertBaseRecursive(int[] digits, int baseA, int baseB, int precisionB)
+    {
+    	if( precisionB < 1 || baseA < 2 || baseB < 2 )
+    		return null;
+    	
+    	for( int i=0; i < digits.length; ++i )
+    		if( digits[i] < 0 || digits[i] >= baseA )
+    			return null;
+    	
+    	List<BigInteger> powersA = squaredPowers(baseA, digits.length);
+    	List<BigInteger> powersB = squaredPowers(baseB, precisionB);
+    	
+    	BigInteger numerator = digitsToInteger(digits, 0, digits.length, baseA, powersA);
+    	BigInteger scaled = numerator.multiply(BigInteger.valueOf(baseB).pow(precisionB));
+    	if( Integer.bitCount(baseA) == 1 )
+    		scaled = scaled.shiftRight(Integer.numberOfTrailingZeros(baseA) * digits.length);
+    	else
+    		scaled = scaled.divide(BigInteger.valueOf(baseA).pow(digits.length));
+    	
+    	int[] output = new int[precisionB];
+    	integerToDigits(scaled, output, 0, precisionB, baseB, powersB);
+    	return output;
+    }
+    
+    /**
+     * Returns {base, base^2, base^4, ...} up to the largest power
+     * base^(2^k) with 2^k < length.
+     */
+    private static List<BigInteger> squaredPowers(int base, int length)
+    {
+    	List<BigInteger> powers = new ArrayList<BigInteger>();
+    	BigInteger power = BigInteger.valueOf(base);
+    	for( long exponent=1; exponent < length; exponent *= 2 )
+    	{
+    		powers.add(power);
+    		power = power.multiply(power);
+    	}
+    	return powers;
+    }
+    
+    /**
+     * Returns the largest k with 2^k < length, for length >= 2.
+     */
+    private static int splitExponent(int length)
+    {
+    	return 31 - Integer.numberOfLeadingZeros(length - 1);
+    }
+    
+    /**
+     * Returns the integer whose base-base digits, most significant first, are
+     * digits[start..end).
+     */
+    private static BigInteger digitsToInteger(int[] digits, int start, int end, int base, List<BigInteger> powers)
+    {
+    	if( end - start <= digitsBelow(base, Long.MAX_VALUE) )
+    	{
+    		long value = 0;
+    		for( int i=start; i < end; ++i )
+    			value = value * base + digits[i];
+    		return BigInteger.valueOf(value);
+    	}
+    	
+    	int k = splitExponent(end - start);
+    	int mid = end - (1 << k);
+    	BigInteger high = digitsToInteger(digits, start, mid, base, powers);
+    	BigInteger low = digitsToInteger(digits, mid, end, base, powers);
+    	return high.multiply(powers.get(k)).add(low);
+    }
+    
+    /**
+     * Writes value, which must be less than base^(end - start), into
+     * output[start..end) as base-base digits, most significant first.
+     */
+    private static void integerToDigits(BigInteger value, int[] output, int start, int end, int base, List<BigInteger> powers)
+    {
+    	if( end - start <= digitsBelow(base, Long.MAX_VALUE) )
+    	{
+    		long remaining = value.longValue();
+    		for( int i=end - 1; i >= start; --i )
+    		{
+    			output[i] = (int)(remaining % base);
+    			remaining /= base;
+    		}
+    		return;
+    	}
+    	
+    	int k = splitExponent(end - start);
+    	int mid = end - (1 << k);
+    	BigInteger[] highAndLow = value.divideAndRemainder(powers.get(k));
+    	integerToDigits(highAndLow[0], output, start, mid, base, powers);
+    	integerToDigits(highAndLow[1], output, mid, end, base, powers);
+    }
 }
@@ -0,0 +1,68 @@
+package piwords;
+
+import java.util.Arrays;
+
+/**
+ * Times the BaseTranslator conversion kernels on digits of pi and checks
+ * that they all produce the same output as convertBase.
+ * 
+ * Usage: BaseTranslatorBenchmark [precision] [baseB] [repetitions]
+ */
+public class BaseTranslatorBenchmark 
+{
+    public static final int DEFAULT_PRECISION = 10000;
+    public static final int DEFAULT_BASE = 26;
+    public static final int DEFAULT_REPETITIONS = 3;
+    
+    public static void main(String[] args) 
+    {
+    	int precision = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PRECISION;
+    	int baseB = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BASE;
+    	int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_REPETITIONS;
+    	
+    	System.out.printf("Converting %d hex digits of pi to base %d, best of %d runs\n", 
+    					  precision, baseB, repetitions);
+    	int[] hex = PiGenerator.sourceFor(precision).computePiInHex(precision);
+    	
+    	int[] expected = null;
+    	long schoolbookNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		expected = BaseTranslator.convertBase(hex, 16, baseB, precision);
+    		schoolbookNanos = Math.min(schoolbookNanos, System.nanoTime() - start);
+    	}
+    	System.out.printf("%-12s %10.1f ms\n", "digits:", schoolbookNanos / 1e6);
+    	
+    	long bestNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		int[] output = BaseTranslator.convertBaseWithLimbs(hex, 16, baseB, precision);
+    		bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    		check(expected, output);
+    	}
+    	printResult("limbs:", bestNanos, schoolbookNanos);
+    	
+    	bestNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		int[] output = BaseTranslator.convertBaseRecursive(hex, 16, baseB, precision);
+    		bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    		check(expected, output);
+    	}
+    	printResult("recursive:", bestNanos, schoolbookNanos);
+    }
+    
+    private static void check(int[] expected, int[] output)
+    {
+    	if( !Arrays.equals(expected, output) )
+    		throw new IllegalStateException("output differs from convertBase");
+    }
+    
+    private static void printResult(String name, long nanos, long schoolbookNanos)
+    {
+    	System.out.printf("%-12s %10.1f ms, speedup %.1fx\n", name, nanos / 1e6, (double)schoolbookNanos / nanos);
+    }
+}
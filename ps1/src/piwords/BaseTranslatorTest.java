@@ -2,6 +2,10 @@ package piwords;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
 import org.junit.Test;
 
 public class BaseTranslatorTest {
@@ -109,5 +113,166 @@ public class BaseTranslatorTest {
     	assertNull(BaseTranslator.convertBase(baseTenNumbers, 2, 10, 4));
     	assertNull(BaseTranslator.convertBase(baseTenNumbers, 9, 10, 4));
     }
-
+    
+    @Test
+    public void baseTranslatorTest_PackedMatchesIntArray()
+    {
+    	int[] hex = PiGenerator.computePiInHex(200);
+    	for( int baseB : new int[] {2, 10, 16, 26, 100, 1000} )
+    	{
+    		PackedDigits packed = BaseTranslator.convertBase(PackedDigits.fromIntArray(hex, 16), 16, baseB, 150);
+    		assertArrayEquals(BaseTranslator.convertBase(hex, 16, baseB, 150), packed.toIntArray());
+    	}
+    	
+    	PackedDigits input = PackedDigits.fromIntArray(new int[] {0, 1, 1, 0}, 2);
+    	assertArrayEquals(new int[] {3, 7, 5}, BaseTranslator.convertBase(input, 2, 10, 3).toIntArray());
+    	assertArrayEquals(new int[] {0, 1, 1, 0}, input.toIntArray());
+    }
+    
+    @Test
+    public void baseTranslatorTest_PackedInvalidInput()
+    {
+    	PackedDigits input = PackedDigits.fromIntArray(new int[] {3, 5, 6, 9}, 10);
+    	assertNull(BaseTranslator.convertBase(input, 9, 10, 4));
+    	assertNull(BaseTranslator.convertBase(input, 10, 10, 0));
+    	assertNull(BaseTranslator.convertBase(input, 1, 10, 4));
+    	assertNull(BaseTranslator.convertBase(input, 10, PackedDigits.MAX_BASE + 1, 4));
+    	assertNull(BaseTranslator.convertBase(PackedDigits.fromIntArray(new int[] {1}, 16), 17, 10, 4));
+    }
+    
+    @Test
+    public void convertBaseRecursiveTest_MatchesConvertBase()
+    {
+    	Random random = new Random(6005);
+    	int[][] basePairs = {{2, 10}, {10, 2}, {16, 26}, {16, 100}, {3, 1000}, {1000, 7}, {36, 36}};
+    	for( int[] bases : basePairs )
+    	{
+    		for( int length : new int[] {0, 1, 5, 17, 64, 300} )
+    		{
+    			int[] digits = new int[length];
+    			for( int i=0; i < length; ++i )
+    				digits[i] = random.nextInt(bases[0]);
+    			for( int precision : new int[] {1, 9, 40, 333} )
+    				assertArrayEquals(BaseTranslator.convertBase(digits, bases[0], bases[1], precision), 
+    								  BaseTranslator.convertBaseRecursive(digits, bases[0], bases[1], precision));
+    		}
+    	}
+    }
+    
+    @Test
+    public void convertBaseRecursiveTest_Pi()
+    {
+    	int[] hex = PiGenerator.sourceFor(2000).computePiInHex(2000);
+    	assertArrayEquals(BaseTranslator.convertBase(hex, 16, 26, 2000), 
+    					  BaseTranslator.convertBaseRecursive(hex, 16, 26, 2000));
+    }
+    
+    @Test
+    public void convertBaseRecursiveTest_InvalidInput()
+    {
+    	int[] input = {1, 1};
+    	assertNull(BaseTranslator.convertBaseRecursive(input, 2, 10, 0));
+    	assertNull(BaseTranslator.convertBaseRecursive(input, 1, 10, 2));
+    	assertNull(BaseTranslator.convertBaseRecursive(input, 2, 1, 2));
+    	assertNull(BaseTranslator.convertBaseRecursive(new int[] {0, 1, -1}, 2, 10, 3));
+    	assertNull(BaseTranslator.convertBaseRecursive(new int[] {3, 5, 6, 9}, 9, 10, 4));
+    	
+    	int[] copy = input.clone();
+    	BaseTranslator.convertBaseRecursive(input, 2, 10, 2);
+    	assertArrayEquals(copy, input);
+    }
+    
+    @Test
+    public void convertBaseWithLimbsTest_MatchesConvertBase()
+    {
+    	Random random = new Random(6005);
+    	int[][] basePairs = {{2, 10}, {10, 2}, {16, 26}, {16, 100}, {3, 1000}, {1000, 7}, 
+    						 {65536, 65521}, {Integer.MAX_VALUE, 2}, {2, Integer.MAX_VALUE}};
+    	for( int[] bases : basePairs )
+    	{
+    		for( int length : new int[] {0, 1, 5, 17, 64} )
+    		{
+    			int[] digits = new int[length];
+    			for( int i=0; i < length; ++i )
+    				digits[i] = random.nextInt(bases[0]);
+    			for( int precision : new int[] {1, 2, 9, 40, 101} )
+    				assertArrayEquals(BaseTranslator.convertBaseRecursive(digits, bases[0], bases[1], precision), 
+    								  BaseTranslator.convertBaseWithLimbs(digits, bases[0], bases[1], precision));
+    		}
+    	}
+    	
+    	int[] hex = PiGenerator.sourceFor(2000).computePiInHex(2000);
+    	assertArrayEquals(BaseTranslator.convertBase(hex, 16, 100, 2000), 
+    					  BaseTranslator.convertBaseWithLimbs(hex, 16, 100, 2000));
+    }
+    
+    @Test
+    public void convertBaseWithLimbsTest_InvalidInput()
+    {
+    	int[] input = {1, 1};
+    	assertNull(BaseTranslator.convertBaseWithLimbs(input, 2, 10, 0));
+    	assertNull(BaseTranslator.convertBaseWithLimbs(input, 1, 10, 2));
+    	assertNull(BaseTranslator.convertBaseWithLimbs(input, 2, 1, 2));
+    	assertNull(BaseTranslator.convertBaseWithLimbs(new int[] {0, 1, -1}, 2, 10, 3));
+    	assertNull(BaseTranslator.convertBaseWithLimbs(new int[] {3, 5, 6, 9}, 9, 10, 4));
+    }
+    
+    @Test
+    public void convertBaseTest_CallerBuffersReused()
+    {
+    	int[] hex = PiGenerator.computePiInHex(100);
+    	int[] workingDigits = new int[120];
+    	int[] output = new int[90];
+    	for( int baseB : new int[] {26, 100, 7} )
+    	{
+    		int[] result = BaseTranslator.convertBase(hex, 16, baseB, 80, workingDigits, output);
+    		assertSame(output, result);
+    		assertArrayEquals(BaseTranslator.convertBase(hex, 16, baseB, 80), Arrays.copyOf(output, 80));
+    	}
+    	assertArrayEquals(PiGenerator.computePiInHex(100), hex);
+    }
+    
+    @Test
+    public void convertBaseTest_CallerBuffersInPlace()
+    {
+    	// .011 in base 2 is .375; what is left after 3 decimal digits is 0.
+    	int[] digits = {0, 1, 1};
+    	int[] output = new int[3];
+    	BaseTranslator.convertBase(digits, 2, 10, 3, digits, output);
+    	assertArrayEquals(new int[] {3, 7, 5}, output);
+    	assertArrayEquals(new int[] {0, 0, 0}, digits);
+    }
+    
+    @Test
+    public void convertBaseTest_CallerBuffersInvalidInput()
+    {
+    	int[] input = {1, 1};
+    	assertNull(BaseTranslator.convertBase(input, 2, 10, 2, new int[1], new int[2]));
+    	assertNull(BaseTranslator.convertBase(input, 2, 10, 2, new int[2], new int[1]));
+    	assertNull(BaseTranslator.convertBase(input, 2, 10, 0, new int[2], new int[2]));
+    	assertNull(BaseTranslator.convertBase(new int[] {0, 2}, 2, 10, 2, new int[2], new int[2]));
+    }
+    
+    @Test
+    public void convertBaseWithLimbsTest_Sink()
+    {
+    	final StringBuilder received = new StringBuilder();
+    	IntConsumer sink = new IntConsumer()
+    	{
+			@Override
+			public void accept(int digit) 
+			{
+				received.append(digit).append(',');
+			}
+    	};
+    	
+    	// 0.1 in base 2 is 0.5 in base 10.
+    	assertTrue(BaseTranslator.convertBaseWithLimbs(new int[] {1}, 2, 10, 3, sink));
+    	assertEquals("5,0,0,", received.toString());
+    	
+    	received.setLength(0);
+    	assertFalse(BaseTranslator.convertBaseWithLimbs(new int[] {2}, 2, 10, 3, sink));
+    	assertFalse(BaseTranslator.convertBaseWithLimbs(new int[] {1}, 2, 10, 0, sink));
+    	assertEquals("", received.toString());
+    }
 }
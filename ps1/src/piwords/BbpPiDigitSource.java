@@ -0,0 +1,38 @@
+package piwords;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Computes each block of hex digits independently with the BBP digit
+ * extraction kernel of PiGenerator, in parallel on a ForkJoinPool.
+ * 
+ * The total cost grows as precision^2 * log(precision), so this is the
+ * right engine for small prefixes and for windows deep in the expansion,
+ * but not for long prefixes.
+ */
+public class BbpPiDigitSource implements PiDigitSource 
+{
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Creates a source that computes on the common ForkJoinPool.
+	 */
+	public BbpPiDigitSource()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a source that computes on the given pool.
+	 */
+	public BbpPiDigitSource(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+	
+	@Override
+	public int[] computePiInHex(int precision) 
+	{
+		return PiGenerator.computePiInHex(precision, pool);
+	}
+}
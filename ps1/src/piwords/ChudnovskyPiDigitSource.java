@@ -0,0 +1,183 @@
+package piwords;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes a whole prefix of pi at once from the Chudnovsky series,
+ * 
+ *   pi = 426880 * sqrt(10005) * Q / (13591409 * Q + T)
+ * 
+ * where Q and T are found by binary splitting the sum over terms [1, n):
+ * the sum is split in halves recursively and the halves are combined with
+ * a few BigInteger multiplications. Each term adds about 47 bits (11.8 hex
+ * digits), and the cost is dominated by multiplying the big halves, so this
+ * is asymptotically much faster than computing the digits one block at a
+ * time. The two halves of every large split are evaluated in parallel.
+ * 
+ * The digits come out of one binary fixed-point value, so no base
+ * conversion is needed to produce hex.
+ */
+public class ChudnovskyPiDigitSource implements PiDigitSource 
+{
+	// Bits of pi contributed by every term: log2(640320^3 / 1728).
+	private static final double BITS_PER_TERM = 47.11041;
+	// Extra hex digits computed and thrown away to absorb rounding in the
+	// final division and square root.
+	private static final int GUARD_HEX_DIGITS = 8;
+	
+	private static final BigInteger A = BigInteger.valueOf(13591409);
+	private static final BigInteger B = BigInteger.valueOf(545140134);
+	// 640320^3 / 24
+	private static final BigInteger C3_OVER_24 = new BigInteger("10939058860032000");
+	
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Creates a source that splits on the common ForkJoinPool.
+	 */
+	public ChudnovskyPiDigitSource()
+	{
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a source that splits on the given pool.
+	 */
+	public ChudnovskyPiDigitSource(ForkJoinPool pool)
+	{
+		this.pool = pool;
+	}
+	
+	@Override
+	public int[] computePiInHex(int precision) 
+	{
+		if( precision < 0 )
+			return null;
+		
+		int bits = 4 * (precision + GUARD_HEX_DIGITS);
+		long terms = (long)(bits / BITS_PER_TERM) + 2;
+		
+		BigInteger[] split = pool.invoke(new SplitTask(1, terms));
+		BigInteger q = split[1];
+		BigInteger t = split[2];
+		
+		// pi * 2^bits
+		BigInteger sqrt10005 = sqrt(BigInteger.valueOf(10005).shiftLeft(2 * bits));
+		BigInteger pi = sqrt10005.multiply(BigInteger.valueOf(426880)).multiply(q)
+								 .divide(A.multiply(q).add(t));
+		
+		return fractionalHexDigits(pi.shiftRight(4 * GUARD_HEX_DIGITS), precision);
+	}
+	
+	/**
+	 * Given x = pi * 16^precision, returns the low precision hex digits of
+	 * x, most significant first.
+	 */
+	private static int[] fractionalHexDigits(BigInteger x, int precision)
+	{
+		// Big-endian, so the last byte holds the last two digits.
+		byte[] bytes = x.toByteArray();
+		int[] digits = new int[precision];
+		for( int i=0; i < precision; ++i )
+		{
+			int fromEnd = precision - 1 - i;
+			int byteIndex = bytes.length - 1 - fromEnd / 2;
+			digits[i] = (bytes[byteIndex] >> (4 * (fromEnd % 2))) & 0xF;
+		}
+		return digits;
+	}
+	
+	/**
+	 * Returns floor(sqrt(n)) for n >= 0. Recursively takes the root of the
+	 * top half of the bits, which is accurate to about half the bits of the
+	 * result, and finishes with Newton steps from above.
+	 */
+	static BigInteger sqrt(BigInteger n)
+	{
+		if( n.bitLength() <= 52 )
+		{
+			long root = (long)Math.sqrt(n.doubleValue());
+			while( root * root > n.longValue() )
+				--root;
+			while( (root + 1) * (root + 1) <= n.longValue() )
+				++root;
+			return BigInteger.valueOf(root);
+		}
+		
+		int shift = n.bitLength() / 4;
+		BigInteger x = sqrt(n.shiftRight(2 * shift)).add(BigInteger.ONE).shiftLeft(shift);
+		while( true )
+		{
+			BigInteger next = x.add(n.divide(x)).shiftRight(1);
+			if( next.compareTo(x) >= 0 )
+				return x;
+			x = next;
+		}
+	}
+	
+	/**
+	 * Returns {P(a, b), Q(a, b), T(a, b)} for the terms [a, b) of the
+	 * series, forking the two halves of ranges larger than
+	 * SEQUENTIAL_TERMS.
+	 */
+	private static class SplitTask extends RecursiveTask<BigInteger[]>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		// Below this many terms the products are too small for forking to pay.
+		private static final long SEQUENTIAL_TERMS = 256;
+		
+		private final long start;
+		private final long end;
+		
+		SplitTask(long start, long end)
+		{
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected BigInteger[] compute() 
+		{
+			if( end - start <= SEQUENTIAL_TERMS )
+				return split(start, end);
+			
+			long mid = (start + end) / 2;
+			SplitTask right = new SplitTask(mid, end);
+			right.fork();
+			BigInteger[] left = new SplitTask(start, mid).compute();
+			return combine(left, right.join());
+		}
+		
+		private static BigInteger[] split(long start, long end)
+		{
+			if( end - start == 1 )
+				return term(start);
+			
+			long mid = (start + end) / 2;
+			return combine(split(start, mid), split(mid, end));
+		}
+		
+		private static BigInteger[] term(long a)
+		{
+			BigInteger bigA = BigInteger.valueOf(a);
+			BigInteger p = BigInteger.valueOf(6 * a - 5)
+						  .multiply(BigInteger.valueOf(2 * a - 1))
+						  .multiply(BigInteger.valueOf(6 * a - 1))
+						  .negate();
+			BigInteger q = C3_OVER_24.multiply(bigA).multiply(bigA).multiply(bigA);
+			BigInteger t = p.multiply(A.add(B.multiply(bigA)));
+			return new BigInteger[] {p, q, t};
+		}
+		
+		private static BigInteger[] combine(BigInteger[] left, BigInteger[] right)
+		{
+			BigInteger p = left[0].multiply(right[0]);
+			BigInteger q = left[1].multiply(right[1]);
+			BigInteger t = right[1].multiply(left[2]).add(left[0].multiply(right[2]));
+			return new BigInteger[] {p, q, t};
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ChudnovskyPiDigitSourceTest 
+{
+    @Test
+    public void computePiInHexTest_MatchesDigitExtraction()
+    {
+    	ChudnovskyPiDigitSource source = new ChudnovskyPiDigitSource();
+    	for( int precision : new int[] {0, 1, 2, 5, 10, 64, 1000} )
+    		assertArrayEquals(PiGenerator.computePiInHex(precision), source.computePiInHex(precision));
+    }
+    
+    @Test
+    public void computePiInHexTest_DeepWindows()
+    {
+    	// Enough terms that the split tree is forked, compared against windows
+    	// extracted directly with BBP.
+    	int[] digits = new ChudnovskyPiDigitSource().computePiInHex(20000);
+    	for( int offset : new int[] {4096, 12345, 19984} )
+    		assertArrayEquals(PiGenerator.hexDigitsAt(offset, 16), 
+    						  Arrays.copyOfRange(digits, offset, offset + 16));
+    }
+    
+    @Test
+    public void computePiInHexTest_PrecisionLessThanZero()
+    {
+    	assertNull(new ChudnovskyPiDigitSource().computePiInHex(-1));
+    }
+    
+    @Test
+    public void sqrtTest()
+    {
+    	assertEquals(BigInteger.ZERO, ChudnovskyPiDigitSource.sqrt(BigInteger.ZERO));
+    	assertEquals(BigInteger.valueOf(3), ChudnovskyPiDigitSource.sqrt(BigInteger.valueOf(15)));
+    	assertEquals(BigInteger.valueOf(4), ChudnovskyPiDigitSource.sqrt(BigInteger.valueOf(16)));
+    	
+    	BigInteger root = BigInteger.ONE.shiftLeft(200).add(BigInteger.valueOf(12345));
+    	assertEquals(root, ChudnovskyPiDigitSource.sqrt(root.multiply(root)));
+    	assertEquals(root.subtract(BigInteger.ONE), 
+    				 ChudnovskyPiDigitSource.sqrt(root.multiply(root).subtract(BigInteger.ONE)));
+    }
+}
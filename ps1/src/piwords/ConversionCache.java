@@ -0,0 +1,440 @@
+package piwords;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers base conversions and frequency alphabets, so that jobs that
+ * repeat them get the earlier result instead of computing it again.
+ * 
+ * Results are keyed by content: a conversion by the SHA-256 digest of its
+ * input digits and the two bases, an alphabet by the digest of its
+ * training words and the base. Only the longest conversion of an input is
+ * kept, since the first digits of a conversion don't depend on how many
+ * are asked for, so a request for fewer digits is answered from its
+ * prefix.
+ * 
+ * There are two tiers. The memory tier holds results up to a total size
+ * in bytes and evicts the least recently used first. The optional disk
+ * tier keeps every result in its own file in a directory, with digits
+ * packed into as few bytes as their base allows, and survives between
+ * jobs. A result missing from memory is looked for on disk before it is
+ * computed. Damaged or unreadable files are treated as missing.
+ * 
+ * A ConversionCache can be shared between threads.
+ */
+public class ConversionCache 
+{
+	private static final int MAGIC = 0x50694343;
+	private static final int VERSION = 1;
+	private static final int DIGITS_KIND = 1;
+	private static final int ALPHABET_KIND = 2;
+	
+	// Approximate heap cost of an array object besides its elements.
+	private static final long ARRAY_OVERHEAD = 16;
+	
+	private final long maxMemoryBytes;
+	private final Path directory;
+	
+	// In access order, so iteration starts at the least recently used.
+	private final LinkedHashMap<String, Object> memory = new LinkedHashMap<String, Object>(16, 0.75f, true);
+	private long memoryBytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+	
+	/**
+	 * Creates a cache holding at most maxMemoryBytes of results in memory,
+	 * and keeping every result in directory if it is not null.
+	 * 
+	 * @param maxMemoryBytes The most bytes of results to keep in memory.
+	 * @param directory Where to keep results on disk, or null to keep them
+	 *                  in memory only. It is created if missing.
+	 * @throws IllegalArgumentException If maxMemoryBytes < 0.
+	 */
+	public ConversionCache(long maxMemoryBytes, Path directory)
+	{
+		if( maxMemoryBytes < 0 )
+			throw new IllegalArgumentException("maxMemoryBytes < 0: " + maxMemoryBytes);
+		
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.directory = directory;
+	}
+	
+	/**
+	 * Same as BaseTranslator.convertBase(digits, baseA, baseB, precisionB),
+	 * answered from the cache when it holds a conversion of the same digits
+	 * between the same bases to at least precisionB digits.
+	 * 
+	 * If digits is null, return null.
+	 * 
+	 * @param digits The input array to translate. This array is not mutated.
+	 * @param baseA The base that the input array is expressed in.
+	 * @param baseB The base to translate into.
+	 * @param precisionB The number of digits of precision the output should
+	 *                   have.
+	 * @return An array of size precisionB expressing digits in baseB.
+	 */
+	public int[] convertBase(int[] digits, int baseA, int baseB, int precisionB)
+	{
+		if( digits == null || precisionB < 1 || baseA < 2 || baseB < 2 )
+			return null;
+		
+		String key = "digits-" + digest(digits) + "-" + baseA + "-" + baseB;
+		int[] cached = (int[])lookup(key, DIGITS_KIND);
+		if( cached != null && cached.length >= precisionB )
+		{
+			count(true);
+			return Arrays.copyOf(cached, precisionB);
+		}
+		
+		count(false);
+		int[] converted = BaseTranslator.convertBaseWithLimbs(digits, baseA, baseB, precisionB);
+		if( converted != null )
+			store(key, converted.clone(), DIGITS_KIND, baseB);
+		return converted;
+	}
+	
+	/**
+	 * Same as AlphabetGenerator.generateFrequencyAlphabet(base, trainingData),
+	 * answered from the cache when it holds an alphabet for the same base
+	 * and training words.
+	 * 
+	 * @param base A numeric base to get an alphabet for.
+	 * @param trainingData The training data from which to generate frequency
+	 *                     counts. This array is not mutated.
+	 * @return A char[] that maps every digit of the base to a char that the
+	 *         digit should be translated into.
+	 */
+	public char[] generateFrequencyAlphabet(int base, String[] trainingData)
+	{
+		if( base < 0 || trainingData == null )
+			return null;
+		
+		String key = "alphabet-" + digest(trainingData) + "-" + base;
+		char[] cached = (char[])lookup(key, ALPHABET_KIND);
+		if( cached != null )
+		{
+			count(true);
+			return cached.clone();
+		}
+		
+		count(false);
+		char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(base, trainingData);
+		if( alphabet != null )
+			store(key, alphabet.clone(), ALPHABET_KIND, 0);
+		return alphabet;
+	}
+	
+	/**
+	 * @return The number of requests answered from the cache.
+	 */
+	public synchronized long hits()
+	{
+		return hits;
+	}
+	
+	/**
+	 * @return The number of requests that had to be computed.
+	 */
+	public synchronized long misses()
+	{
+		return misses;
+	}
+	
+	/**
+	 * @return The bytes of results currently held in memory.
+	 */
+	public synchronized long memoryBytes()
+	{
+		return memoryBytes;
+	}
+	
+	/**
+	 * Returns the result stored under key in memory or on disk, or null. A
+	 * result found on disk is brought into memory.
+	 */
+	private Object lookup(String key, int kind)
+	{
+		synchronized( this )
+		{
+			Object value = memory.get(key);
+			if( value != null )
+				return value;
+		}
+		
+		Object value = readFile(key, kind);
+		if( value == null )
+			return null;
+		synchronized( this )
+		{
+			putInMemory(key, value);
+		}
+		return value;
+	}
+	
+	private synchronized void count(boolean hit)
+	{
+		if( hit )
+			++hits;
+		else
+			++misses;
+	}
+	
+	private void store(String key, Object value, int kind, int base)
+	{
+		synchronized( this )
+		{
+			Object old = memory.get(key);
+			// Keep the longer of two conversions that raced each other.
+			if( old != null && sizeOf(old) >= sizeOf(value) )
+				return;
+			putInMemory(key, value);
+		}
+		writeFile(key, value, kind, base);
+	}
+	
+	private void putInMemory(String key, Object value)
+	{
+		Object old = memory.remove(key);
+		if( old != null )
+			memoryBytes -= sizeOf(old);
+		if( sizeOf(value) > maxMemoryBytes )
+			return;
+		
+		memory.put(key, value);
+		memoryBytes += sizeOf(value);
+		for( Iterator<Map.Entry<String, Object>> eldest=memory.entrySet().iterator(); 
+				memoryBytes > maxMemoryBytes; )
+		{
+			memoryBytes -= sizeOf(eldest.next().getValue());
+			eldest.remove();
+		}
+	}
+	
+	private static long sizeOf(Object value)
+	{
+		if( value instanceof int[] )
+			return ARRAY_OVERHEAD + 4L * ((int[])value).length;
+		else
+			return ARRAY_OVERHEAD + 2L * ((char[])value).length;
+	}
+	
+	/**
+	 * Returns the result in the file for key, or null if there is no
+	 * directory, no file, or the file is not a valid result of this kind.
+	 */
+	private Object readFile(String key, int kind)
+	{
+		if( directory == null )
+			return null;
+		
+		try( DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(directory.resolve(key)))) )
+		{
+			if( input.readInt() != MAGIC || input.readInt() != VERSION || input.readInt() != kind )
+				return null;
+			int base = input.readInt();
+			int length = input.readInt();
+			if( length < 0 )
+				return null;
+			
+			if( kind == ALPHABET_KIND )
+			{
+				char[] alphabet = new char[length];
+				for( int i=0; i < length; ++i )
+					alphabet[i] = input.readChar();
+				return alphabet;
+			}
+			
+			int bytesPerDigit = bytesPerDigit(base);
+			int[] digits = new int[length];
+			for( int i=0; i < length; ++i )
+			{
+				int digit = 0;
+				for( int b=0; b < bytesPerDigit; ++b )
+					digit = (digit << 8) | input.readUnsignedByte();
+				if( digit < 0 || digit >= base )
+					return null;
+				digits[i] = digit;
+			}
+			return digits;
+		}
+		catch( IOException e )
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes value to the file for key, through a temporary file so that
+	 * readers never see half a file. A file already holding a result at
+	 * least as long is kept, since the memory tier may no longer know of
+	 * it. Failures only cost the disk copy.
+	 */
+	private void writeFile(String key, Object value, int kind, int base)
+	{
+		if( directory == null )
+			return;
+		
+		try
+		{
+			Files.createDirectories(directory);
+			Path temporary = Files.createTempFile(directory, key, ".tmp");
+			try
+			{
+				try( DataOutputStream output = new DataOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(temporary))) )
+				{
+					output.writeInt(MAGIC);
+					output.writeInt(VERSION);
+					output.writeInt(kind);
+					output.writeInt(base);
+					if( kind == ALPHABET_KIND )
+					{
+						char[] alphabet = (char[])value;
+						output.writeInt(alphabet.length);
+						output.writeChars(new String(alphabet));
+					}
+					else
+					{
+						int[] digits = (int[])value;
+						int bytesPerDigit = bytesPerDigit(base);
+						output.writeInt(digits.length);
+						for( int digit : digits )
+							for( int b=bytesPerDigit-1; b >= 0; --b )
+								output.writeByte(digit >>> (8 * b));
+					}
+				}
+				// Checked and replaced together, so that of two writers the
+				// shorter can't replace the longer between the two steps.
+				synchronized( this )
+				{
+					Path file = directory.resolve(key);
+					if( storedLength(file, kind) < lengthOf(value) )
+						Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+								   StandardCopyOption.ATOMIC_MOVE);
+				}
+			}
+			finally
+			{
+				Files.deleteIfExists(temporary);
+			}
+		}
+		catch( IOException e )
+		{
+			// A later job that needs the result will compute it again.
+		}
+	}
+	
+	/**
+	 * Returns the length recorded in the header of a result file of this
+	 * kind, or -1 if there is no such file or it can't be read.
+	 */
+	private static int storedLength(Path file, int kind)
+	{
+		try( DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file))) )
+		{
+			if( input.readInt() != MAGIC || input.readInt() != VERSION || input.readInt() != kind )
+				return -1;
+			input.readInt();
+			return input.readInt();
+		}
+		catch( IOException e )
+		{
+			return -1;
+		}
+	}
+	
+	private static int lengthOf(Object value)
+	{
+		if( value instanceof int[] )
+			return ((int[])value).length;
+		else
+			return ((char[])value).length;
+	}
+	
+	/**
+	 * @return The fewest whole bytes that hold any digit of base.
+	 */
+	private static int bytesPerDigit(int base)
+	{
+		int bytes = 1;
+		for( long limit=256; limit < base; limit <<= 8 )
+			++bytes;
+		return bytes;
+	}
+	
+	private static String digest(int[] digits)
+	{
+		MessageDigest sha = sha256();
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		for( int digit : digits )
+		{
+			if( !buffer.hasRemaining() )
+			{
+				sha.update(buffer.array(), 0, buffer.position());
+				buffer.clear();
+			}
+			buffer.putInt(digit);
+		}
+		sha.update(buffer.array(), 0, buffer.position());
+		return toHex(sha.digest());
+	}
+	
+	private static String digest(String[] words)
+	{
+		MessageDigest sha = sha256();
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		for( String word : words )
+		{
+			// Length-prefix each word so that word boundaries count, with -1
+			// for null.
+			buffer.clear();
+			buffer.putInt(word == null ? -1 : word.length());
+			sha.update(buffer.array(), 0, 4);
+			if( word == null )
+				continue;
+			for( int i=0; i < word.length(); ++i )
+			{
+				sha.update((byte)(word.charAt(i) >>> 8));
+				sha.update((byte)word.charAt(i));
+			}
+		}
+		return toHex(sha.digest());
+	}
+	
+	private static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch( NoSuchAlgorithmException e )
+		{
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static String toHex(byte[] bytes)
+	{
+		StringBuilder hex = new StringBuilder();
+		for( byte b : bytes )
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+}
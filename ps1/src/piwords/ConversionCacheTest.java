@@ -0,0 +1,215 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConversionCacheTest 
+{
+	private Path directory;
+	
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory("conversion-cache");
+	}
+	
+	@After
+	public void deleteDirectory() throws IOException
+	{
+		try( DirectoryStream<Path> files = Files.newDirectoryStream(directory) )
+		{
+			for( Path file : files )
+				Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+	
+    @Test
+    public void convertBaseTest_MatchesBaseTranslator()
+    {
+    	int[] hex = PiGenerator.computePiInHex(200);
+    	ConversionCache cache = new ConversionCache(1 << 20, null);
+    	
+    	int[] expected = BaseTranslator.convertBaseWithLimbs(hex, 16, 26, 150);
+    	assertArrayEquals(expected, cache.convertBase(hex, 16, 26, 150));
+    	assertEquals(0, cache.hits());
+    	assertEquals(1, cache.misses());
+    	
+    	assertArrayEquals(expected, cache.convertBase(hex, 16, 26, 150));
+    	assertEquals(1, cache.hits());
+    	assertEquals(1, cache.misses());
+    	
+    	// A different base is a different result.
+    	assertArrayEquals(BaseTranslator.convertBaseWithLimbs(hex, 16, 100, 120), 
+    			cache.convertBase(hex, 16, 100, 120));
+    	assertEquals(2, cache.misses());
+    }
+    
+    @Test
+    public void convertBaseTest_PrefixOfLongerConversion()
+    {
+    	int[] hex = PiGenerator.computePiInHex(200);
+    	ConversionCache cache = new ConversionCache(1 << 20, null);
+    	
+    	cache.convertBase(hex, 16, 10, 200);
+    	assertArrayEquals(BaseTranslator.convertBaseWithLimbs(hex, 16, 10, 50), 
+    			cache.convertBase(hex, 16, 10, 50));
+    	assertEquals(1, cache.hits());
+    	
+    	// A longer request computes again and replaces the shorter result.
+    	assertArrayEquals(BaseTranslator.convertBaseWithLimbs(hex, 16, 10, 240), 
+    			cache.convertBase(hex, 16, 10, 240));
+    	assertEquals(2, cache.misses());
+    	cache.convertBase(hex, 16, 10, 220);
+    	assertEquals(2, cache.hits());
+    }
+    
+    @Test
+    public void convertBaseTest_ResultsAreCopies()
+    {
+    	int[] digits = {1, 2, 3};
+    	ConversionCache cache = new ConversionCache(1 << 20, null);
+    	
+    	int[] first = cache.convertBase(digits, 10, 2, 20);
+    	int[] expected = first.clone();
+    	first[0] = 7;
+    	assertArrayEquals(expected, cache.convertBase(digits, 10, 2, 20));
+    	
+    	// Same digits in a new array are the same key.
+    	assertArrayEquals(expected, cache.convertBase(new int[] {1, 2, 3}, 10, 2, 20));
+    	assertEquals(2, cache.hits());
+    }
+    
+    @Test
+    public void convertBaseTest_EvictsLeastRecentlyUsed()
+    {
+    	// Room for two 100-digit results but not three.
+    	ConversionCache cache = new ConversionCache(2 * (16 + 4 * 100) + 100, null);
+    	int[] a = {1}, b = {2}, c = {3};
+    	
+    	cache.convertBase(a, 10, 2, 100);
+    	cache.convertBase(b, 10, 2, 100);
+    	cache.convertBase(a, 10, 2, 100);
+    	cache.convertBase(c, 10, 2, 100);
+    	assertEquals(3, cache.misses());
+    	assertTrue(cache.memoryBytes() <= 2 * (16 + 4 * 100) + 100);
+    	
+    	// b was least recently used when c came in.
+    	cache.convertBase(a, 10, 2, 100);
+    	cache.convertBase(c, 10, 2, 100);
+    	assertEquals(3, cache.hits());
+    	cache.convertBase(b, 10, 2, 100);
+    	assertEquals(4, cache.misses());
+    	
+    	// A result larger than the whole tier is not kept.
+    	ConversionCache tiny = new ConversionCache(10, null);
+    	tiny.convertBase(a, 10, 2, 100);
+    	assertEquals(0, tiny.memoryBytes());
+    }
+    
+    @Test
+    public void convertBaseTest_DiskTierOutlivesCache()
+    {
+    	int[] hex = PiGenerator.computePiInHex(100);
+    	int[] expected = BaseTranslator.convertBaseWithLimbs(hex, 16, 1000, 60);
+    	
+    	new ConversionCache(1 << 20, directory).convertBase(hex, 16, 1000, 60);
+    	
+    	// A new cache with no memory tier reads it back from disk.
+    	ConversionCache cache = new ConversionCache(0, directory);
+    	assertArrayEquals(expected, cache.convertBase(hex, 16, 1000, 60));
+    	assertArrayEquals(java.util.Arrays.copyOf(expected, 10), cache.convertBase(hex, 16, 1000, 10));
+    	assertEquals(2, cache.hits());
+    	assertEquals(0, cache.misses());
+    }
+    
+    @Test
+    public void convertBaseTest_DiskOnlyShortAfterLong()
+    {
+    	int[] hex = PiGenerator.computePiInHex(200);
+    	ConversionCache cache = new ConversionCache(0, directory);
+    	cache.convertBase(hex, 16, 26, 150);
+    	cache.convertBase(hex, 16, 26, 40);
+    	assertArrayEquals(BaseTranslator.convertBaseWithLimbs(hex, 16, 26, 150), 
+    			cache.convertBase(hex, 16, 26, 150));
+    	assertEquals(1, cache.misses());
+    }
+    
+    @Test
+    public void convertBaseTest_ShorterResultKeepsLongerFile()
+    {
+    	int[] hex = PiGenerator.computePiInHex(200);
+    	
+    	// The first cache remembers 40 digits in memory while another writes
+    	// 170 to the file, then it computes 100.
+    	ConversionCache stale = new ConversionCache(1 << 20, directory);
+    	stale.convertBase(hex, 16, 26, 40);
+    	new ConversionCache(0, directory).convertBase(hex, 16, 26, 170);
+    	stale.convertBase(hex, 16, 26, 100);
+    	assertEquals(2, stale.misses());
+    	
+    	ConversionCache fresh = new ConversionCache(0, directory);
+    	assertArrayEquals(BaseTranslator.convertBaseWithLimbs(hex, 16, 26, 170), 
+    			fresh.convertBase(hex, 16, 26, 170));
+    	assertEquals(0, fresh.misses());
+    }
+    
+    @Test
+    public void convertBaseTest_DamagedFileIsMiss() throws IOException
+    {
+    	int[] hex = PiGenerator.computePiInHex(100);
+    	new ConversionCache(1 << 20, directory).convertBase(hex, 16, 26, 60);
+    	
+    	try( DirectoryStream<Path> files = Files.newDirectoryStream(directory) )
+    	{
+    		for( Path file : files )
+    			Files.write(file, new byte[] {1, 2, 3});
+    	}
+    	
+    	ConversionCache cache = new ConversionCache(1 << 20, directory);
+    	assertArrayEquals(BaseTranslator.convertBaseWithLimbs(hex, 16, 26, 60), 
+    			cache.convertBase(hex, 16, 26, 60));
+    	assertEquals(0, cache.hits());
+    	assertEquals(1, cache.misses());
+    }
+    
+    @Test
+    public void convertBaseTest_InvalidInput()
+    {
+    	ConversionCache cache = new ConversionCache(1 << 20, null);
+    	assertNull(cache.convertBase(null, 10, 2, 5));
+    	assertNull(cache.convertBase(new int[] {1}, 1, 2, 5));
+    	assertNull(cache.convertBase(new int[] {1}, 10, 2, 0));
+    	assertNull(cache.convertBase(new int[] {10}, 10, 2, 5));
+    	assertEquals(0, cache.memoryBytes());
+    }
+    
+    @Test
+    public void generateFrequencyAlphabetTest_Cached()
+    {
+    	String[] words = {"abba", "cab", "bad"};
+    	ConversionCache cache = new ConversionCache(1 << 20, directory);
+    	
+    	char[] expected = AlphabetGenerator.generateFrequencyAlphabet(8, words);
+    	assertArrayEquals(expected, cache.generateFrequencyAlphabet(8, words));
+    	assertArrayEquals(expected, cache.generateFrequencyAlphabet(8, words));
+    	assertEquals(1, cache.hits());
+    	
+    	// Word boundaries are part of the key.
+    	String[] joined = {"abbacab", "bad"};
+    	assertArrayEquals(AlphabetGenerator.generateFrequencyAlphabet(8, joined), 
+    			cache.generateFrequencyAlphabet(8, joined));
+    	assertEquals(2, cache.misses());
+    	
+    	assertArrayEquals(expected, new ConversionCache(0, directory).generateFrequencyAlphabet(8, words));
+    	assertNull(cache.generateFrequencyAlphabet(-1, words));
+    }
+}
@@ -0,0 +1,157 @@
+package piwords;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Measures the word coverage Main reports for a whole range of bases at
+ * once: for each base, pi is converted into it, spelled with that base's
+ * frequency alphabet, and searched for the words.
+ * 
+ * The hex digits of pi, the letter counts behind the frequency alphabets,
+ * and the compiled WordMatcher are shared by every base, and the bases are
+ * converted and searched in parallel on a ForkJoinPool. Each base only
+ * converts as many digits as the hex digits make certain, see
+ * PrecisionPlanner.
+ * 
+ * Usage: CoverageSweep [minBase] [maxBase] [hexPrecision]
+ */
+public class CoverageSweep 
+{
+	public static final int DEFAULT_MIN_BASE = 26;
+	public static final int DEFAULT_MAX_BASE = 1000;
+	
+	private final int[] hexDigits;
+	private final String[] words;
+	private final WordMatcher matcher;
+	private final long[] letterCounts;
+	
+	/**
+	 * Prepares a sweep over the given digits of pi, with frequency
+	 * alphabets trained on the words being searched for, as in Main.
+	 * 
+	 * @param hexDigits The first hex digits of pi, as from
+	 *                  PiGenerator.computePiInHex. Not mutated.
+	 * @param words The words to search for. Not mutated.
+	 */
+	public CoverageSweep(int[] hexDigits, String[] words)
+	{
+		this.hexDigits = hexDigits.clone();
+		this.words = words.clone();
+		matcher = new WordMatcher(this.words);
+		letterCounts = AlphabetGenerator.countLetters(this.words, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Returns the word coverage for every base in [minBase, maxBase]: the
+	 * fraction of the words found in pi converted into that base and
+	 * spelled with AlphabetGenerator.generateFrequencyAlphabet(base, words).
+	 * Entry i is the coverage of base minBase + i.
+	 * 
+	 * If minBase < 2, maxBase < minBase, or pool is null, return null.
+	 * 
+	 * @param minBase The smallest base to measure.
+	 * @param maxBase The largest base to measure.
+	 * @param pool The pool to measure the bases on.
+	 * @return The coverage of each base.
+	 */
+	public double[] coverage(int minBase, int maxBase, ForkJoinPool pool)
+	{
+		if( minBase < 2 || maxBase < minBase || pool == null )
+			return null;
+		
+		final double[] coverage = new double[maxBase - minBase + 1];
+		final List<BaseTask> tasks = new ArrayList<BaseTask>();
+		for( int base=minBase; base <= maxBase; ++base )
+			tasks.add(new BaseTask(base, coverage, base - minBase));
+		pool.invoke(new RecursiveAction()
+		{
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected void compute() 
+			{
+				ForkJoinTask.invokeAll(tasks);
+			}
+		});
+		return coverage;
+	}
+	
+	/**
+	 * Measures the coverage of one base into results[index].
+	 */
+	private class BaseTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final int base;
+		private final double[] results;
+		private final int index;
+		
+		BaseTask(int base, double[] results, int index)
+		{
+			this.base = base;
+			this.results = results;
+			this.index = index;
+		}
+		
+		@Override
+		protected void compute() 
+		{
+			results[index] = coverage(base);
+		}
+	}
+	
+	/**
+	 * Returns the word coverage of a single base, or 0 if the hex digits
+	 * don't support a single digit in that base or the words have no letters
+	 * to build its alphabet from.
+	 */
+	double coverage(int base)
+	{
+		int precision = PrecisionPlanner.trustedDigits(hexDigits.length, base);
+		if( precision < 1 || words.length == 0 )
+			return 0;
+		
+		char[] alphabet = AlphabetGenerator.transformLetterCountsToArray(letterCounts, base);
+		// With no letters counted the alphabet comes out empty, where
+		// generateFrequencyAlphabet would have returned null.
+		if( alphabet.length < base )
+			return 0;
+		int[] digits = PrecisionPlanner.convertPi(hexDigits, base, precision);
+		WordMatcher.Scanner scanner = matcher.scanner();
+		for( int i=0; i < digits.length && !scanner.allFound(); ++i )
+			scanner.accept(alphabet[digits[i]]);
+		
+		// Count each distinct word once, as Main's map of found words does.
+		return (double)WordFinder.getSubstrings(matcher, scanner).size() / words.length;
+	}
+	
+    public static void main(String[] args) 
+    {
+    	int minBase = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MIN_BASE;
+    	int maxBase = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_BASE;
+    	int hexPrecision = args.length > 2 ? Integer.parseInt(args[2]) : Main.PI_PRECISION;
+    	
+    	System.out.printf("Word coverage of bases %d to %d from %d hex digits of pi\n", 
+    					  minBase, maxBase, hexPrecision);
+    	int[] hexDigits = PiGenerator.sourceFor(hexPrecision).computePiInHex(hexPrecision);
+    	long start = System.nanoTime();
+    	double[] coverage = new CoverageSweep(hexDigits, Main.WORD_LIST)
+    			.coverage(minBase, maxBase, ForkJoinPool.commonPool());
+    	long nanos = System.nanoTime() - start;
+    	
+    	int best = 0;
+    	for( int i=0; i < coverage.length; ++i )
+    	{
+    		System.out.printf("%6d %f\n", minBase + i, coverage[i]);
+    		if( coverage[i] > coverage[best] )
+    			best = i;
+    	}
+    	System.out.printf("Best base %d with coverage %f, swept in %.1f s\n", 
+    					  minBase + best, coverage[best], nanos / 1e9);
+    }
+}
@@ -0,0 +1,59 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class CoverageSweepTest 
+{
+    @Test
+    public void coverageTest_MatchesSingleBaseRuns()
+    {
+    	int precision = 800;
+    	int[] hex = PiGenerator.computePiInHex(precision);
+    	CoverageSweep sweep = new CoverageSweep(hex, Main.WORD_LIST);
+    	
+    	ForkJoinPool pool = new ForkJoinPool(3);
+    	try
+    	{
+    		double[] coverage = sweep.coverage(20, 40, pool);
+    		assertEquals(21, coverage.length);
+    		for( int base=20; base <= 40; ++base )
+    		{
+    			// What Main does for one base, limited to the digits the hex
+    			// digits make certain.
+    			int[] digits = PrecisionPlanner.convertPi(hex, base, PrecisionPlanner.trustedDigits(precision, base));
+    			String text = DigitsToStringConverter.convertDigitsToString(digits, base, 
+    					AlphabetGenerator.generateFrequencyAlphabet(base, Main.WORD_LIST));
+    			double expected = (double)WordFinder.getSubstrings(text, Main.WORD_LIST).size() / Main.WORD_LIST.length;
+    			assertEquals(expected, coverage[base - 20], 0);
+    		}
+    	}
+    	finally
+    	{
+    		pool.shutdown();
+    	}
+    }
+    
+    @Test
+    public void coverageTest_InvalidInput()
+    {
+    	CoverageSweep sweep = new CoverageSweep(new int[] {2, 4, 3}, Main.WORD_LIST);
+    	assertNull(sweep.coverage(1, 10, ForkJoinPool.commonPool()));
+    	assertNull(sweep.coverage(10, 9, ForkJoinPool.commonPool()));
+    	assertNull(sweep.coverage(10, 20, null));
+    	// Three hex digits don't pin down a single digit in a large base.
+    	assertEquals(0, sweep.coverage(5000, 5000, ForkJoinPool.commonPool())[0], 0);
+    }
+    
+    @Test
+    public void coverageTest_WordsWithoutLetters()
+    {
+    	int[] hex = PiGenerator.computePiInHex(100);
+    	CoverageSweep sweep = new CoverageSweep(hex, new String[] {"123", "!?"});
+    	double[] coverage = sweep.coverage(10, 12, ForkJoinPool.commonPool());
+    	assertArrayEquals(new double[] {0, 0, 0}, coverage, 0);
+    }
+}
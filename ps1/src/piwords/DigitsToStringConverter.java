@@ -36,4 +36,32 @@ public class DigitsToStringConverter
         
     	return output.toString();
     }
+    
+    /**
+     * Same as convertDigitsToString(int[], int, char[]), but reads the digits
+     * from a packed digit array.
+     * 
+     * If digits.length() > Integer.MAX_VALUE, the result cannot be a String,
+     * so return null.
+     */
+    public static String convertDigitsToString(PackedDigits digits, int base, char[] alphabet) 
+    {
+    	if( alphabet == null )
+    		return "";
+    	
+    	if( alphabet.length != base || base < 2 || digits.length() > Integer.MAX_VALUE )
+    		return null;
+    	
+    	StringBuilder output = new StringBuilder((int)digits.length());
+    	for( long i=0; i < digits.length(); ++i )
+    	{
+    		int digit = digits.get(i);
+    		if( digit >= base )
+    			return null;
+    		
+    		output.append(alphabet[digit]);
+    	}
+        
+    	return output.toString();
+    }
 }
@@ -73,5 +73,16 @@ public class DigitsToStringConverterTest {
     	// base < 2
     	assertNull(DigitsToStringConverter.convertDigitsToString(new int[] {0}, 1, new char[] {'a'}));
     }
+    
+    @Test
+    public void convertDigitsToStringTest_Packed()
+    {
+    	char[] alphabet = {'a', 'b', 'c', 'd'};
+    	PackedDigits digits = PackedDigits.fromIntArray(new int[] {3, 2, 1, 0, 0}, 4);
+    	assertEquals("dcbaa", DigitsToStringConverter.convertDigitsToString(digits, 4, alphabet));
+    	assertEquals("", DigitsToStringConverter.convertDigitsToString(digits, 4, null));
+    	assertNull(DigitsToStringConverter.convertDigitsToString(digits, 3, new char[] {'a', 'b', 'c'}));
+    	assertNull(DigitsToStringConverter.convertDigitsToString(digits, 5, alphabet));
+    }
 
 }
@@ -5,12 +5,15 @@
 
 package piwords;
 
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Map;
 
 public class Main {
     public static final int PI_PRECISION = 10000;
 //	public static final int PI_PRECISION = 10;
+    // Digits computed by earlier runs are kept here and reused.
+    public static final String PI_CACHE_FILE = "pi-hex-digits.cache";
 
     // List borrowed from: http://www.langmaker.com/wordlist/basiclex.htm
     // In general, you shouldn't hardcode big data like this. It's much more
@@ -24,14 +27,21 @@ public class Main {
 
     public static void main(String[] args) {
         System.out.println("Problem 1: Calculating Pi...");
-        int[] piHexDigits = PiGenerator.computePiInHex(PI_PRECISION);
+        // Work back from PI_PRECISION digits in each base to the hex digits,
+        // with guard digits, that make all of them certain.
+        int hexPrecision = Math.max(
+                PrecisionPlanner.hexDigitsFor(PI_PRECISION, 26),
+                PrecisionPlanner.hexDigitsFor(PI_PRECISION, 100));
+        PiDigitSource piSource = new PiDigitCache(Paths.get(PI_CACHE_FILE),
+                PiGenerator.sourceFor(hexPrecision));
+        int[] piHexDigits = piSource.computePiInHex(hexPrecision);
         System.out.printf(
                 "Digits of Pi in base-16: %s\n\n",
                 MaybeTruncateString(Arrays.toString(piHexDigits), 50));
 
         System.out.println("Problem 2: Translating Pi to base-26...");
-        int[] translatedPiBase26 =
-                BaseTranslator.convertBase(piHexDigits, 16, 26, PI_PRECISION);
+        int[] translatedPiBase26 = PrecisionPlanner.convertPi(piHexDigits, 26,
+                PI_PRECISION);
         System.out.printf(
                 "Digits of Pi in base-26: %s\n\n",
                 MaybeTruncateString(Arrays.toString(translatedPiBase26), 50));
@@ -55,8 +65,8 @@ public class Main {
         
         System.out.println("Problem 5: Getting word matches with base-100 and" +
         		           " frequency dictionary");
-        int[] translatedPiBase100 =
-                BaseTranslator.convertBase(piHexDigits, 16, 100, PI_PRECISION);
+        int[] translatedPiBase100 = PrecisionPlanner.convertPi(piHexDigits, 100,
+                PI_PRECISION);
         char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(
                 100, WORD_LIST);
         
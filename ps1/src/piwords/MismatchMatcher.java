@@ -0,0 +1,181 @@
+package piwords;
+
+import java.util.Arrays;
+
+/**
+ * Finds the first place each needle occurs in a haystack with at most
+ * maxMismatches characters differing (Hamming distance, so the match has
+ * the same length as the needle).
+ * 
+ * Each needle is cut into maxMismatches + 1 pieces. A window with at most
+ * maxMismatches mismatches leaves at least one piece untouched, so only
+ * windows where a piece occurs exactly need to be compared against the
+ * needle. All pieces of all needles are found in one pass by a WordMatcher,
+ * and the scan stops as soon as every needle's first match is settled.
+ * 
+ * A MismatchMatcher is immutable and can be shared between threads.
+ */
+public class MismatchMatcher 
+{
+	// The haystack is scanned in blocks of this many start indexes, checking
+	// between blocks whether every needle is settled.
+	private static final int BLOCK_LENGTH = 1 << 14;
+	
+	private final String[] needles;
+	private final int maxMismatches;
+	private final WordMatcher pieceMatcher;
+	// The needle each piece was cut from and where in the needle it starts.
+	private final int[] pieceNeedle;
+	private final int[] pieceOffset;
+	
+	/**
+	 * Cuts needles into pieces for matching with up to maxMismatches
+	 * mismatches. Null and empty needles are never found.
+	 * 
+	 * @param needles The strings to search for. This array is not mutated.
+	 * @param maxMismatches The number of characters that may differ.
+	 * @throws IllegalArgumentException If maxMismatches < 0.
+	 */
+	public MismatchMatcher(String[] needles, int maxMismatches)
+	{
+		if( maxMismatches < 0 )
+			throw new IllegalArgumentException("maxMismatches < 0: " + maxMismatches);
+		
+		this.needles = needles.clone();
+		this.maxMismatches = maxMismatches;
+		
+		int pieces = 0;
+		for( int i=0; i < needles.length; ++i )
+			if( needles[i] != null && needles[i].length() > maxMismatches )
+				pieces += maxMismatches + 1;
+		
+		String[] pieceStrings = new String[pieces];
+		pieceNeedle = new int[pieces];
+		pieceOffset = new int[pieces];
+		int piece = 0;
+		for( int i=0; i < needles.length; ++i )
+		{
+			if( needles[i] == null || needles[i].length() <= maxMismatches )
+				continue;
+			int length = needles[i].length();
+			for( int j=0; j <= maxMismatches; ++j )
+			{
+				int start = (int)((long)length * j / (maxMismatches + 1));
+				int end = (int)((long)length * (j + 1) / (maxMismatches + 1));
+				pieceStrings[piece] = needles[i].substring(start, end);
+				pieceNeedle[piece] = i;
+				pieceOffset[piece] = start;
+				++piece;
+			}
+		}
+		pieceMatcher = new WordMatcher(pieceStrings);
+	}
+	
+	/**
+	 * @return A copy of the needles this matcher was compiled for.
+	 */
+	public String[] needles()
+	{
+		return needles.clone();
+	}
+	
+	/**
+	 * @return The number of characters that may differ in a match.
+	 */
+	public int maxMismatches()
+	{
+		return maxMismatches;
+	}
+	
+	/**
+	 * Returns, for every needle, the lowest index of haystack at which it
+	 * occurs with at most maxMismatches() mismatches, along with the number
+	 * of mismatches there. Entry i belongs to needles[i], and is null if the
+	 * needle does not occur.
+	 * 
+	 * A needle no longer than maxMismatches() matches at index 0 of any
+	 * haystack at least as long as it.
+	 * 
+	 * @param haystack The text to search.
+	 * @return The first approximate occurrence of each needle.
+	 */
+	public ApproximateMatch[] findFirstOccurrences(final CharSequence haystack)
+	{
+		final int[] first = new int[needles.length];
+		final int[] distance = new int[needles.length];
+		Arrays.fill(first, -1);
+		
+		int length = haystack.length();
+		int unsettled = 0;
+		for( int i=0; i < needles.length; ++i )
+		{
+			if( needles[i] == null || needles[i].isEmpty() || needles[i].length() > length )
+				continue;
+			if( needles[i].length() <= maxMismatches )
+			{
+				first[i] = 0;
+				distance[i] = mismatches(haystack, 0, needles[i], maxMismatches);
+			}
+			else
+				++unsettled;
+		}
+		
+		OccurrenceListener verifier = new OccurrenceListener()
+		{
+			@Override
+			public void occurrenceFound(int piece, int index)
+			{
+				int needle = pieceNeedle[piece];
+				int start = index - pieceOffset[piece];
+				if( start < 0 || (first[needle] >= 0 && first[needle] <= start) 
+						|| start + needles[needle].length() > haystack.length() )
+					return;
+				int found = mismatches(haystack, start, needles[needle], maxMismatches);
+				if( found <= maxMismatches )
+				{
+					first[needle] = start;
+					distance[needle] = found;
+				}
+			}
+		};
+		
+		// A needle is settled once every piece of every window that starts
+		// before its best match has been scanned, which is when the scan
+		// has passed that match's last character.
+		boolean[] settled = new boolean[needles.length];
+		for( int start=0; start < length && unsettled > 0; start += BLOCK_LENGTH )
+		{
+			int end = (int)Math.min(length, (long)start + BLOCK_LENGTH);
+			pieceMatcher.findAllOccurrences(haystack, start, end, verifier);
+			for( int i=0; i < needles.length; ++i )
+			{
+				if( !settled[i] && first[i] >= 0 && needles[i].length() > maxMismatches
+						&& first[i] + needles[i].length() - 1 < end )
+				{
+					settled[i] = true;
+					--unsettled;
+				}
+			}
+		}
+		
+		ApproximateMatch[] matches = new ApproximateMatch[needles.length];
+		for( int i=0; i < needles.length; ++i )
+			if( first[i] >= 0 )
+				matches[i] = new ApproximateMatch(first[i], distance[i]);
+		return matches;
+	}
+	
+	/**
+	 * Returns the number of characters at which needle differs from the
+	 * haystack starting at start, or some number greater than limit if that
+	 * is more than limit.
+	 */
+	private static int mismatches(CharSequence haystack, int start, String needle, int limit)
+	{
+		int count = 0;
+		for( int i=0; i < needle.length() && count <= limit; ++i )
+			if( haystack.charAt(start + i) != needle.charAt(i) )
+				++count;
+		return count;
+	}
+}
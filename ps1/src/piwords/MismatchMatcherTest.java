@@ -0,0 +1,69 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MismatchMatcherTest 
+{
+	private ApproximateMatch bruteForce(String haystack, String needle, int maxMismatches)
+	{
+		if( needle == null || needle.isEmpty() )
+			return null;
+		for( int i=0; i + needle.length() <= haystack.length(); ++i )
+		{
+			int mismatches = 0;
+			for( int j=0; j < needle.length(); ++j )
+				if( haystack.charAt(i + j) != needle.charAt(j) )
+					++mismatches;
+			if( mismatches <= maxMismatches )
+				return new ApproximateMatch(i, mismatches);
+		}
+		return null;
+	}
+	
+	private void assertMatchesBruteForce(String haystack, String[] needles, int maxMismatches)
+	{
+		ApproximateMatch[] matches = new MismatchMatcher(needles, maxMismatches).findFirstOccurrences(haystack);
+		for( int i=0; i < needles.length; ++i )
+			assertEquals(needles[i], bruteForce(haystack, needles[i], maxMismatches), matches[i]);
+	}
+	
+    @Test
+    public void findFirstOccurrencesTest_Basic()
+    {
+    	String[] needles = {"cat", "hat", "dog", "at", "", null};
+    	assertMatchesBruteForce("the cot sat on a hat", needles, 0);
+    	assertMatchesBruteForce("the cot sat on a hat", needles, 1);
+    	assertMatchesBruteForce("the cot sat on a hat", needles, 2);
+    	assertMatchesBruteForce("ca", needles, 3);
+    	assertMatchesBruteForce("", needles, 1);
+    	
+    	ApproximateMatch[] matches = new MismatchMatcher(needles, 1).findFirstOccurrences("the cot sat on a hat");
+    	assertEquals(new ApproximateMatch(4, 1), matches[0]);
+    	assertEquals(new ApproximateMatch(8, 1), matches[1]);
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_MatchesBruteForce()
+    {
+    	// Long enough to span several scan blocks, so needles that are only
+    	// found late have to survive the checks between blocks.
+    	Random random = new Random(6005);
+    	char[] text = new char[40000];
+    	for( int i=0; i < text.length; ++i )
+    		text[i] = (char)('a' + random.nextInt(26));
+    	String haystack = new String(text);
+    	String[] needles = {"pi", "word", "needle", "haystack", "mismatch", "alphabet", "abcdefghijkl", "zzzz"};
+    	for( int k=0; k <= 3; ++k )
+    		assertMatchesBruteForce(haystack, needles, k);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_NegativeMismatches()
+    {
+    	new MismatchMatcher(new String[] {"a"}, -1);
+    }
+}
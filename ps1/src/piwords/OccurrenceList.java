@@ -0,0 +1,111 @@
+package piwords;
+
+import java.util.Arrays;
+
+/**
+ * An OccurrenceListener that stores every occurrence it is given as a
+ * (needleId, index) pair, in the order it was given them, along with a
+ * count of occurrences per needle.
+ * 
+ * Pairs are kept in blocks of primitive int arrays rather than boxed
+ * objects, so each occurrence takes 8 bytes and the list can grow past
+ * what a single array could hold without copying what is already stored.
+ */
+public class OccurrenceList implements OccurrenceListener 
+{
+	private static final int BLOCK_SHIFT = 20;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	
+	private int[][] needleIdBlocks = new int[1][];
+	private int[][] indexBlocks = new int[1][];
+	private long size;
+	private long[] counts;
+	
+	/**
+	 * Returns an empty list for occurrences of numNeedles needles.
+	 * 
+	 * @param numNeedles The number of needles, so that needle ids run from 0
+	 *                   to numNeedles - 1.
+	 */
+	public OccurrenceList(int numNeedles)
+	{
+		counts = new long[numNeedles];
+	}
+	
+	@Override
+	public void occurrenceFound(int needleId, int index)
+	{
+		int block = (int)(size >>> BLOCK_SHIFT);
+		int offset = (int)(size & BLOCK_MASK);
+		if( block == needleIdBlocks.length || needleIdBlocks[block] == null 
+				|| offset == needleIdBlocks[block].length )
+			growBlock(block);
+		needleIdBlocks[block][offset] = needleId;
+		indexBlocks[block][offset] = index;
+		++size;
+		++counts[needleId];
+	}
+	
+	/**
+	 * Makes room for one more entry in the given block, which is the last
+	 * one. A block starts small and doubles up to BLOCK_SIZE, so short lists
+	 * only pay for what they use and long ones never copy a full block.
+	 */
+	private void growBlock(int block)
+	{
+		if( block == needleIdBlocks.length )
+		{
+			needleIdBlocks = Arrays.copyOf(needleIdBlocks, 2 * block);
+			indexBlocks = Arrays.copyOf(indexBlocks, 2 * block);
+		}
+		int newLength = needleIdBlocks[block] == null ? 16 : 2 * needleIdBlocks[block].length;
+		needleIdBlocks[block] = needleIdBlocks[block] == null ? new int[newLength] : Arrays.copyOf(needleIdBlocks[block], newLength);
+		indexBlocks[block] = indexBlocks[block] == null ? new int[newLength] : Arrays.copyOf(indexBlocks[block], newLength);
+	}
+	
+	/**
+	 * @return The number of occurrences stored.
+	 */
+	public long size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns the id of the needle of the i-th occurrence.
+	 * 
+	 * @throws IndexOutOfBoundsException If i < 0 or i >= size().
+	 */
+	public int needleId(long i)
+	{
+		checkIndex(i);
+		return needleIdBlocks[(int)(i >>> BLOCK_SHIFT)][(int)(i & BLOCK_MASK)];
+	}
+	
+	/**
+	 * Returns the haystack index at which the i-th occurrence starts.
+	 * 
+	 * @throws IndexOutOfBoundsException If i < 0 or i >= size().
+	 */
+	public int index(long i)
+	{
+		checkIndex(i);
+		return indexBlocks[(int)(i >>> BLOCK_SHIFT)][(int)(i & BLOCK_MASK)];
+	}
+	
+	/**
+	 * Returns the number of occurrences stored for each needle. Entry i is
+	 * the count of needle id i.
+	 */
+	public long[] counts()
+	{
+		return counts.clone();
+	}
+	
+	private void checkIndex(long i)
+	{
+		if( i < 0 || i >= size )
+			throw new IndexOutOfBoundsException("Occurrence " + i + " of " + size);
+	}
+}
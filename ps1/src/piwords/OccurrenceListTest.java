@@ -0,0 +1,43 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class OccurrenceListTest 
+{
+    @Test
+    public void occurrenceFoundTest_StoresInOrder()
+    {
+    	OccurrenceList list = new OccurrenceList(3);
+    	assertEquals(0, list.size());
+    	
+    	// Enough entries to fill a whole block and start the next one.
+    	int entries = (1 << 20) + 100;
+    	for( int i=0; i < entries; ++i )
+    		list.occurrenceFound(i % 3, i);
+    	assertEquals(entries, list.size());
+    	assertArrayEquals(new long[] {(entries + 2) / 3, (entries + 1) / 3, entries / 3}, list.counts());
+    	for( int i=0; i < entries; i += 997 )
+    	{
+    		assertEquals(i % 3, list.needleId(i));
+    		assertEquals(i, list.index(i));
+    	}
+    	assertEquals((entries - 1) % 3, list.needleId(entries - 1));
+    	assertEquals(entries - 1, list.index(entries - 1));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexTest_PastEnd()
+    {
+    	OccurrenceList list = new OccurrenceList(1);
+    	list.occurrenceFound(0, 5);
+    	list.index(1);
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void needleIdTest_Negative()
+    {
+    	new OccurrenceList(1).needleId(-1);
+    }
+}
@@ -0,0 +1,18 @@
+package piwords;
+
+/**
+ * Receives needle occurrences as a WordMatcher finds them, so that callers
+ * can count, filter or store them without the matcher buffering anything.
+ */
+public interface OccurrenceListener 
+{
+    /**
+     * Called once for every occurrence of a needle in the haystack.
+     * Occurrences are reported in order of the index at which they end, and
+     * occurrences that end at the same index in no particular order.
+     * 
+     * @param needleId The index of the needle in WordMatcher.needles().
+     * @param index The index of the haystack at which the occurrence starts.
+     */
+    void occurrenceFound(int needleId, int index);
+}
@@ -0,0 +1,251 @@
+package piwords;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed-length array of digits in some base, packed as tightly as the base
+ * allows: two digits per byte for bases up to 16, one per byte up to 256,
+ * and two bytes per digit up to MAX_BASE. Compared to an int[], this takes
+ * a quarter to an eighth of the memory for the bases used by piwords.
+ * 
+ * Indexes are longs, so an array can hold more digits than an int[] can.
+ * The storage is split into chunks of at most 2^30 bytes, and the chunks can
+ * live outside the Java heap.
+ * 
+ * Digits are stored most significant first, the same as the int[] digit
+ * arrays used elsewhere in piwords; fromIntArray and toIntArray convert
+ * between the two.
+ */
+public class PackedDigits 
+{
+	public static final int MAX_BASE = 1 << 16;
+	
+	private static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+	
+	private final int bitsPerDigit;
+	private final long length;
+	private final int chunkBytes;
+	private final boolean direct;
+	private final ByteBuffer[] chunks;
+	
+	/**
+	 * Returns a zero-filled array of length digits in base, held on the Java
+	 * heap.
+	 * 
+	 * If base < 2, base > MAX_BASE, or length < 0, return null.
+	 */
+	public static PackedDigits forBase(int base, long length)
+	{
+		return forBase(base, length, false);
+	}
+	
+	/**
+	 * Returns a zero-filled array of length digits in base. If direct is
+	 * true, the digits are held in direct buffers outside the Java heap.
+	 * 
+	 * If base < 2, base > MAX_BASE, or length < 0, return null.
+	 */
+	public static PackedDigits forBase(int base, long length, boolean direct)
+	{
+		if( base < 2 || base > MAX_BASE || length < 0 )
+			return null;
+		
+		return new PackedDigits(bitsPerDigit(base), length, direct, DEFAULT_CHUNK_BYTES);
+	}
+	
+	/**
+	 * Returns the digits of an int[] packed for the given base.
+	 * 
+	 * If digits[i] < 0 or digits[i] >= base for any i, or the base is not
+	 * supported by forBase, return null.
+	 */
+	public static PackedDigits fromIntArray(int[] digits, int base)
+	{
+		PackedDigits packed = forBase(base, digits.length);
+		if( packed == null )
+			return null;
+		
+		for( int i=0; i < digits.length; ++i )
+		{
+			if( digits[i] < 0 || digits[i] >= base )
+				return null;
+			packed.set(i, digits[i]);
+		}
+		return packed;
+	}
+	
+	PackedDigits(int bitsPerDigit, long length, boolean direct, int chunkBytes)
+	{
+		this.bitsPerDigit = bitsPerDigit;
+		this.length = length;
+		this.direct = direct;
+		this.chunkBytes = chunkBytes;
+		
+		long totalBytes = (length * bitsPerDigit + 7) / 8;
+		int chunkCount = (int)((totalBytes + chunkBytes - 1) / chunkBytes);
+		chunks = new ByteBuffer[chunkCount];
+		for( int i=0; i < chunkCount; ++i )
+		{
+			int size = (int)Math.min(chunkBytes, totalBytes - (long)i * chunkBytes);
+			chunks[i] = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+		}
+	}
+	
+	private static int bitsPerDigit(int base)
+	{
+		if( base <= 16 )
+			return 4;
+		if( base <= 256 )
+			return 8;
+		return 16;
+	}
+	
+	/**
+	 * @return The number of digits in the array.
+	 */
+	public long length()
+	{
+		return length;
+	}
+	
+	/**
+	 * @return The largest base whose digits this array can hold.
+	 */
+	public int maxBase()
+	{
+		return 1 << bitsPerDigit;
+	}
+	
+	/**
+	 * @return The digit at index, for 0 <= index < length().
+	 */
+	public int get(long index)
+	{
+		long bitIndex = index * bitsPerDigit;
+		ByteBuffer chunk = chunks[(int)((bitIndex >>> 3) / chunkBytes)];
+		int offset = (int)((bitIndex >>> 3) % chunkBytes);
+		switch( bitsPerDigit )
+		{
+		case 4:
+			return (index & 1) == 0 ? (chunk.get(offset) >> 4) & 0xF : chunk.get(offset) & 0xF;
+		case 8:
+			return chunk.get(offset) & 0xFF;
+		default:
+			return chunk.getChar(offset);
+		}
+	}
+	
+	/**
+	 * Sets the digit at index, for 0 <= index < length() and
+	 * 0 <= digit < maxBase().
+	 */
+	public void set(long index, int digit)
+	{
+		long bitIndex = index * bitsPerDigit;
+		ByteBuffer chunk = chunks[(int)((bitIndex >>> 3) / chunkBytes)];
+		int offset = (int)((bitIndex >>> 3) % chunkBytes);
+		switch( bitsPerDigit )
+		{
+		case 4:
+			int old = chunk.get(offset);
+			chunk.put(offset, (byte)((index & 1) == 0 ? (old & 0x0F) | (digit << 4) : (old & 0xF0) | digit));
+			break;
+		case 8:
+			chunk.put(offset, (byte)digit);
+			break;
+		default:
+			chunk.putChar(offset, (char)digit);
+		}
+	}
+	
+	/**
+	 * Treats the digits as the fractional part of a number in base, most
+	 * significant first, multiplies it by factor in place and returns the
+	 * integer part that carries out of the most significant digit.
+	 * 
+	 * This is one step of BaseTranslator.convertBase. It walks the chunks
+	 * directly instead of going through get and set for every digit.
+	 * 
+	 * Requires 2 <= base <= maxBase(), every digit < base, and factor >= 0.
+	 */
+	public long multiplyFraction(int factor, int base)
+	{
+		long carry = 0;
+		for( int c=chunks.length - 1; c >= 0; --c )
+		{
+			ByteBuffer chunk = chunks[c];
+			// The last chunk can end halfway through a byte of nibbles.
+			long firstIndex = (long)c * chunkBytes * 8 / bitsPerDigit;
+			int count = (int)(Math.min(length, firstIndex + (long)chunkBytes * 8 / bitsPerDigit) - firstIndex);
+			switch( bitsPerDigit )
+			{
+			case 4:
+				if( count % 2 == 1 )
+				{
+					// A lone digit in the high nibble of the last byte.
+					int offset = count / 2;
+					long x = ((chunk.get(offset) >> 4) & 0xF) * (long)factor + carry;
+					carry = x / base;
+					chunk.put(offset, (byte)((x % base) << 4));
+				}
+				for( int offset=count / 2 - 1; offset >= 0; --offset )
+				{
+					int packed = chunk.get(offset);
+					long low = (packed & 0xF) * (long)factor + carry;
+					long high = ((packed >> 4) & 0xF) * (long)factor + low / base;
+					carry = high / base;
+					chunk.put(offset, (byte)(((high % base) << 4) | (low % base)));
+				}
+				break;
+			case 8:
+				for( int i=count - 1; i >= 0; --i )
+				{
+					long x = (chunk.get(i) & 0xFF) * (long)factor + carry;
+					carry = x / base;
+					chunk.put(i, (byte)(x % base));
+				}
+				break;
+			default:
+				for( int i=count - 1; i >= 0; --i )
+				{
+					long x = chunk.getChar(2 * i) * (long)factor + carry;
+					carry = x / base;
+					chunk.putChar(2 * i, (char)(x % base));
+				}
+			}
+		}
+		return carry;
+	}
+	
+	/**
+	 * @return A copy of this array, on or off the heap like this one.
+	 */
+	public PackedDigits copy()
+	{
+		PackedDigits copy = new PackedDigits(bitsPerDigit, length, direct, chunkBytes);
+		for( int i=0; i < chunks.length; ++i )
+		{
+			ByteBuffer source = chunks[i].duplicate();
+			source.clear();
+			copy.chunks[i].put(source);
+			copy.chunks[i].clear();
+		}
+		return copy;
+	}
+	
+	/**
+	 * Returns the digits as an int[], most significant first.
+	 * 
+	 * If length() > Integer.MAX_VALUE, return null.
+	 */
+	public int[] toIntArray()
+	{
+		if( length > Integer.MAX_VALUE )
+			return null;
+		
+		int[] digits = new int[(int)length];
+		for( int i=0; i < digits.length; ++i )
+			digits[i] = get(i);
+		return digits;
+	}
+}
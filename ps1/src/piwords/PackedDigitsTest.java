@@ -0,0 +1,94 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PackedDigitsTest 
+{
+    @Test
+    public void forBaseTest_PackingPerBase()
+    {
+    	assertEquals(16, PackedDigits.forBase(2, 10).maxBase());
+    	assertEquals(16, PackedDigits.forBase(16, 10).maxBase());
+    	assertEquals(256, PackedDigits.forBase(17, 10).maxBase());
+    	assertEquals(256, PackedDigits.forBase(100, 10).maxBase());
+    	assertEquals(PackedDigits.MAX_BASE, PackedDigits.forBase(1000, 10).maxBase());
+    	assertEquals(10, PackedDigits.forBase(26, 10).length());
+    }
+    
+    @Test
+    public void forBaseTest_InvalidInput()
+    {
+    	assertNull(PackedDigits.forBase(1, 10));
+    	assertNull(PackedDigits.forBase(PackedDigits.MAX_BASE + 1, 10));
+    	assertNull(PackedDigits.forBase(10, -1));
+    }
+    
+    @Test
+    public void intArrayRoundTripTest()
+    {
+    	int[] hex = {0x2, 0x4, 0x3, 0xF, 0x6, 0xA, 0x8};
+    	assertArrayEquals(hex, PackedDigits.fromIntArray(hex, 16).toIntArray());
+    	
+    	int[] base100 = {0, 99, 42, 7};
+    	assertArrayEquals(base100, PackedDigits.fromIntArray(base100, 100).toIntArray());
+    	
+    	int[] base1000 = {999, 0, 256, 512};
+    	assertArrayEquals(base1000, PackedDigits.fromIntArray(base1000, 1000).toIntArray());
+    	
+    	assertArrayEquals(new int[0], PackedDigits.fromIntArray(new int[0], 16).toIntArray());
+    }
+    
+    @Test
+    public void fromIntArrayTest_InvalidDigits()
+    {
+    	assertNull(PackedDigits.fromIntArray(new int[] {1, 16}, 16));
+    	assertNull(PackedDigits.fromIntArray(new int[] {-1}, 10));
+    }
+    
+    @Test
+    public void setTest_AcrossChunks()
+    {
+    	// Chunks of 3 bytes hold 6 nibbles each.
+    	PackedDigits digits = new PackedDigits(4, 20, true, 3);
+    	for( int i=0; i < 20; ++i )
+    		digits.set(i, (i * 7) % 16);
+    	for( int i=0; i < 20; ++i )
+    		assertEquals((i * 7) % 16, digits.get(i));
+    	
+    	digits.set(6, 0);
+    	assertEquals(7 * 5 % 16, digits.get(5));
+    	assertEquals(0, digits.get(6));
+    	assertEquals(7 * 7 % 16, digits.get(7));
+    }
+    
+    @Test
+    public void multiplyFractionTest()
+    {
+    	// .01 in base 2 times 10 is 2.5, leaving .1 in base 2
+    	PackedDigits quarter = PackedDigits.fromIntArray(new int[] {0, 1}, 2);
+    	assertEquals(2, quarter.multiplyFraction(10, 2));
+    	assertArrayEquals(new int[] {1, 0}, quarter.toIntArray());
+    	
+    	// The same carries must come out when the digits span several chunks.
+    	int[] hex = PiGenerator.computePiInHex(41);
+    	PackedDigits small = new PackedDigits(4, hex.length, false, 2);
+    	PackedDigits large = PackedDigits.fromIntArray(hex, 16);
+    	for( int i=0; i < hex.length; ++i )
+    		small.set(i, hex[i]);
+    	for( int i=0; i < 10; ++i )
+    		assertEquals(large.multiplyFraction(26, 16), small.multiplyFraction(26, 16));
+    	assertArrayEquals(large.toIntArray(), small.toIntArray());
+    }
+    
+    @Test
+    public void copyTest_IsIndependent()
+    {
+    	PackedDigits original = PackedDigits.fromIntArray(new int[] {1, 2, 3}, 10);
+    	PackedDigits copy = original.copy();
+    	copy.set(1, 9);
+    	assertArrayEquals(new int[] {1, 2, 3}, original.toIntArray());
+    	assertArrayEquals(new int[] {1, 9, 3}, copy.toIntArray());
+    }
+}
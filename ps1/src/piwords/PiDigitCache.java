@@ -0,0 +1,245 @@
+package piwords;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * A PiDigitSource that keeps the digits it has computed in a file, so that
+ * later runs only pay for the digits they have not seen before.
+ * 
+ * The file is a HEADER_SIZE byte header followed by the digits packed two
+ * per byte, the earlier digit in the high nibble:
+ * 
+ *   offset  0: int  MAGIC
+ *   offset  4: int  VERSION
+ *   offset  8: long number of digits stored
+ *   offset 16: long CRC32 of the packed digit bytes
+ *   offset 24: packed digits
+ * 
+ * Digits are read through a read-only mapping of the file. Readers hold a
+ * shared lock on the file and writers an exclusive one, so several
+ * processes can map the same cache at once. File locks belong to the whole
+ * JVM, so threads of one JVM also take turns on a per-file monitor.
+ * 
+ * If the file is missing, truncated, or fails its checksum, it is treated as
+ * empty and rewritten. If it cannot be read or written at all, the digits
+ * are computed without caching.
+ */
+public class PiDigitCache implements PiDigitSource 
+{
+	public static final int MAGIC = 0x50694878; // "PiHx"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 24;
+	
+	private static final ConcurrentMap<Path, Object> FILE_MONITORS = 
+			new ConcurrentHashMap<Path, Object>();
+	
+	private final Path file;
+	private final PiDigitSource source;
+	
+	/**
+	 * @param file The cache file. It is created if it does not exist.
+	 * @param source Computes the digits missing from the cache.
+	 */
+	public PiDigitCache(Path file, PiDigitSource source)
+	{
+		this.file = file.toAbsolutePath().normalize();
+		this.source = source;
+	}
+	
+	/**
+	 * Returns the number of digits currently stored in the cache file, or 0
+	 * if there is no valid cache file.
+	 */
+	public int cachedPrecision()
+	{
+		synchronized( monitor() )
+		{
+			try( FileChannel channel = FileChannel.open(file, StandardOpenOption.READ) )
+			{
+				FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+				try
+				{
+					return readCachedPrecision(channel);
+				}
+				finally
+				{
+					lock.release();
+				}
+			}
+			catch( IOException e )
+			{
+				return 0;
+			}
+		}
+	}
+	
+	/**
+	 * Returns precision hex digits of pi, reading as many as possible from
+	 * the cache file. Missing digits are computed and appended to the file.
+	 * A tail short enough for PiGenerator.isExtractionCheaper is extracted
+	 * directly with PiGenerator.hexDigitsAt and appended to the cached
+	 * digits; otherwise all precision digits are taken from source.
+	 */
+	@Override
+	public int[] computePiInHex(int precision) 
+	{
+		if( precision < 0 )
+			return null;
+		
+		synchronized( monitor() )
+		{
+			try( FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, 
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE) )
+			{
+				FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+				try
+				{
+					int cached = readCachedPrecision(channel);
+					if( cached >= precision )
+						return readDigits(channel, precision);
+				}
+				finally
+				{
+					lock.release();
+				}
+				
+				lock = channel.lock();
+				try
+				{
+					// Another process may have extended the file in between.
+					int cached = readCachedPrecision(channel);
+					if( cached >= precision )
+						return readDigits(channel, precision);
+					return extend(channel, cached, precision);
+				}
+				finally
+				{
+					lock.release();
+				}
+			}
+			catch( IOException e )
+			{
+				return source.computePiInHex(precision);
+			}
+		}
+	}
+	
+	private Object monitor()
+	{
+		Object monitor = FILE_MONITORS.get(file);
+		if( monitor == null )
+		{
+			FILE_MONITORS.putIfAbsent(file, new Object());
+			monitor = FILE_MONITORS.get(file);
+		}
+		return monitor;
+	}
+	
+	/**
+	 * Returns the digit count from the header of a valid cache file, or 0 if
+	 * the file is empty or not a valid cache file.
+	 */
+	private static int readCachedPrecision(FileChannel channel) throws IOException
+	{
+		if( channel.size() < HEADER_SIZE )
+			return 0;
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while( header.hasRemaining() )
+			if( channel.read(header, header.position()) < 0 )
+				return 0;
+		header.flip();
+		if( header.getInt() != MAGIC || header.getInt() != VERSION )
+			return 0;
+		
+		long precision = header.getLong();
+		long checksum = header.getLong();
+		if( precision < 0 || precision > Integer.MAX_VALUE || 
+			channel.size() < HEADER_SIZE + packedSize(precision) )
+			return 0;
+		
+		MappedByteBuffer packed = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, packedSize(precision));
+		return checksum(packed) == checksum ? (int)precision : 0;
+	}
+	
+	private static int[] readDigits(FileChannel channel, int precision) throws IOException
+	{
+		MappedByteBuffer packed = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, packedSize(precision));
+		int[] digits = new int[precision];
+		for( int i=0; i < precision; ++i )
+		{
+			int packedByte = packed.get(i / 2);
+			digits[i] = (i % 2 == 0) ? (packedByte >> 4) & 0xF : packedByte & 0xF;
+		}
+		return digits;
+	}
+	
+	/**
+	 * Computes digits [cached, precision), appends them to the file after
+	 * the cached ones, and returns all precision digits. Extracting a digit
+	 * costs time proportional to its position, so past a few thousand
+	 * digits a fast source such as Chudnovsky recomputes the whole prefix
+	 * sooner than hexDigitsAt extracts anything but a short tail.
+	 */
+	private int[] extend(FileChannel channel, int cached, int precision) throws IOException
+	{
+		int[] digits;
+		int tailLength = precision - cached;
+		int[] tail = (cached > 0 && PiGenerator.isExtractionCheaper(cached, tailLength)) ? 
+				PiGenerator.hexDigitsAt(cached, tailLength) : null;
+		if( tail != null )
+		{
+			digits = Arrays.copyOf(readDigits(channel, cached), precision);
+			System.arraycopy(tail, 0, digits, cached, tail.length);
+		}
+		else
+			digits = source.computePiInHex(precision);
+		
+		// Drop anything past the valid digits, then rewrite from the byte
+		// holding digit `cached`, which may already hold the previous digit
+		// in its high nibble.
+		channel.truncate(HEADER_SIZE + packedSize(cached));
+		int firstDigit = cached - cached % 2;
+		ByteBuffer packedTail = ByteBuffer.allocate((int)packedSize(precision) - firstDigit / 2);
+		for( int i=firstDigit; i < precision; i += 2 )
+			packedTail.put((byte)((digits[i] << 4) | (i + 1 < precision ? digits[i+1] : 0)));
+		packedTail.flip();
+		writeFully(channel, packedTail, HEADER_SIZE + firstDigit / 2);
+		
+		MappedByteBuffer packed = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, packedSize(precision));
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(precision).putLong(checksum(packed));
+		header.flip();
+		writeFully(channel, header, 0);
+		channel.force(true);
+		return digits;
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while( buffer.hasRemaining() )
+			position += channel.write(buffer, position);
+	}
+	
+	private static long packedSize(long precision)
+	{
+		return (precision + 1) / 2;
+	}
+	
+	private static long checksum(ByteBuffer packed)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(packed);
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,113 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PiDigitCacheTest 
+{
+	private Path cacheFile;
+	private CountingSource source;
+	
+	/**
+	 * Computes digits with BBP and remembers how many it was asked for.
+	 */
+	private static class CountingSource implements PiDigitSource
+	{
+		int digitsComputed = 0;
+		
+		@Override
+		public int[] computePiInHex(int precision) 
+		{
+			digitsComputed += precision;
+			return PiGenerator.computePiInHex(precision);
+		}
+	}
+	
+	@Before
+	public void createCacheFile() throws IOException
+	{
+		File file = File.createTempFile("pi-digit-cache", ".bin");
+		file.delete();
+		cacheFile = file.toPath();
+		source = new CountingSource();
+	}
+	
+	@After
+	public void deleteCacheFile()
+	{
+		cacheFile.toFile().delete();
+	}
+	
+    @Test
+    public void computePiInHexTest_SecondRunReadsCache()
+    {
+    	PiDigitCache cache = new PiDigitCache(cacheFile, source);
+    	assertEquals(0, cache.cachedPrecision());
+    	assertArrayEquals(PiGenerator.computePiInHex(301), cache.computePiInHex(301));
+    	assertEquals(301, source.digitsComputed);
+    	assertEquals(301, cache.cachedPrecision());
+    	assertEquals(PiDigitCache.HEADER_SIZE + 151, cacheFile.toFile().length());
+    	
+    	PiDigitCache secondRun = new PiDigitCache(cacheFile, source);
+    	assertArrayEquals(PiGenerator.computePiInHex(301), secondRun.computePiInHex(301));
+    	assertArrayEquals(PiGenerator.computePiInHex(100), secondRun.computePiInHex(100));
+    	assertArrayEquals(new int[0], secondRun.computePiInHex(0));
+    	assertEquals(301, source.digitsComputed);
+    }
+    
+    @Test
+    public void computePiInHexTest_ShortTailIsExtractedAndAppended()
+    {
+    	PiDigitCache cache = new PiDigitCache(cacheFile, source);
+    	cache.computePiInHex(301);
+    	assertTrue(PiGenerator.isExtractionCheaper(301, 9) && PiGenerator.isExtractionCheaper(310, 21));
+    	assertArrayEquals(PiGenerator.computePiInHex(310), cache.computePiInHex(310));
+    	assertArrayEquals(PiGenerator.computePiInHex(331), cache.computePiInHex(331));
+    	assertEquals(301, source.digitsComputed);
+    	assertEquals(331, cache.cachedPrecision());
+    	assertEquals(PiDigitCache.HEADER_SIZE + 166, cacheFile.toFile().length());
+    }
+    
+    @Test
+    public void computePiInHexTest_LongTailComesFromSource()
+    {
+    	PiDigitCache cache = new PiDigitCache(cacheFile, source);
+    	cache.computePiInHex(11);
+    	int longer = 11 + 2 * PiGenerator.BINARY_SPLITTING_THRESHOLD;
+    	assertFalse(PiGenerator.isExtractionCheaper(11, longer - 11));
+    	assertArrayEquals(PiGenerator.computePiInHex(longer), cache.computePiInHex(longer));
+    	assertEquals(11 + longer, source.digitsComputed);
+    	assertEquals(longer, cache.cachedPrecision());
+    }
+    
+    @Test
+    public void computePiInHexTest_CorruptFileIsRewritten() throws IOException
+    {
+    	PiDigitCache cache = new PiDigitCache(cacheFile, source);
+    	cache.computePiInHex(300);
+    	
+    	RandomAccessFile file = new RandomAccessFile(cacheFile.toFile(), "rw");
+    	file.seek(PiDigitCache.HEADER_SIZE + 10);
+    	file.write(0x5A);
+    	file.close();
+    	
+    	assertEquals(0, cache.cachedPrecision());
+    	assertArrayEquals(PiGenerator.computePiInHex(300), cache.computePiInHex(300));
+    	assertEquals(600, source.digitsComputed);
+    	assertEquals(300, cache.cachedPrecision());
+    }
+    
+    @Test
+    public void computePiInHexTest_PrecisionLessThanZero()
+    {
+    	assertNull(new PiDigitCache(cacheFile, source).computePiInHex(-1));
+    }
+}
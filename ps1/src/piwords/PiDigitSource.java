@@ -0,0 +1,22 @@
+package piwords;
+
+/**
+ * A way of computing the hexadecimal digits of pi. PiGenerator.sourceFor
+ * picks the implementation best suited to a given precision.
+ */
+public interface PiDigitSource 
+{
+    /**
+     * Returns precision hexadecimal digits of the fractional part of pi.
+     * Returns digits in most significant to least significant order, in the
+     * same layout as PiGenerator.computePiInHex, which is the layout
+     * BaseTranslator.convertBase expects with baseA = 16.
+     * 
+     * If precision < 0, return null.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve.
+     * @return precision digits of pi in hexadecimal.
+     */
+    int[] computePiInHex(int precision);
+}
@@ -1,5 +1,10 @@
 package piwords;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 public class PiGenerator {
     /**
      * Returns precision hexadecimal digits of the fractional part of pi.
@@ -17,10 +22,261 @@ public class PiGenerator {
     		return null;
     	
     	int[] result = new int[precision];
-    	for(int i=0; i < precision; ++i)
-    		result[i] = piDigit(i+1);
+    	fillHexDigits(result, 0, 0, precision);
         return result;
     }
+    
+    /**
+     * Precisions at or above this are computed by binary splitting rather
+     * than digit extraction. Below it the BigInteger setup costs more than
+     * extracting the few blocks directly.
+     */
+    public static final int BINARY_SPLITTING_THRESHOLD = 256;
+    
+    /**
+     * Returns the PiDigitSource best suited to computing precision hex
+     * digits: BBP digit extraction for short prefixes and Chudnovsky binary
+     * splitting for long ones. Both produce the same digits.
+     * 
+     * @param precision The number of digits that will be requested.
+     * @return A source to compute them with.
+     */
+    public static PiDigitSource sourceFor(int precision)
+    {
+    	if( precision < BINARY_SPLITTING_THRESHOLD )
+    		return new BbpPiDigitSource();
+    	else
+    		return new ChudnovskyPiDigitSource();
+    }
+    
+    /**
+     * How many times as long as extracting one digit with BBP at position n,
+     * divided by n, it takes binary splitting to compute one digit of a
+     * prefix. Measured with warm JITs between 5000 and 100000 digits, where
+     * binary splitting took 2.5 to 4.6 microseconds a digit and extraction
+     * 100 to 185 nanoseconds times the position; rounded down, since the
+     * extraction estimate is the less certain one.
+     */
+    public static final int EXTRACTION_COST_RATIO = 24;
+    
+    /**
+     * Returns whether extracting the count digits at offset with hexDigitsAt
+     * is expected to be faster than computing all offset + count digits with
+     * sourceFor(offset + count), which is the choice to make when the first
+     * offset digits are already known. Extraction costs about count times
+     * the mean position, and binary splitting about EXTRACTION_COST_RATIO
+     * times the precision, so only short tails are worth extracting past a
+     * few thousand digits.
+     * 
+     * @param offset The number of digits already known.
+     * @param count The number of digits wanted after them.
+     * @return Whether to use hexDigitsAt(offset, count).
+     */
+    public static boolean isExtractionCheaper(long offset, int count)
+    {
+    	long precision = offset + count;
+    	if( precision < BINARY_SPLITTING_THRESHOLD )
+    		return true;
+    	return (double)count * (offset + count / 2) < (double)EXTRACTION_COST_RATIO * precision;
+    }
+    
+    /**
+     * Returns count hexadecimal digits of the fractional part of pi, starting
+     * offset digits after the decimal place. hexDigitsAt(0, n) is the same as
+     * computePiInHex(n), and in general
+     *   hexDigitsAt(offset, count)[i] == computePiInHex(offset + count)[offset + i]
+     * 
+     * Only the requested window is computed, so the cost grows roughly as
+     * count * offset * log(offset) rather than with the whole prefix.
+     * 
+     * If offset < 0, count < 0, or the window reaches past
+     * MAX_DIGIT_POSITION, return null.
+     * 
+     * @param offset The number of digits after the decimal place to skip.
+     * @param count The number of digits to retrieve.
+     * @return count digits of pi in hexadecimal starting at offset.
+     */
+    public static int[] hexDigitsAt(long offset, int count)
+    {
+    	if( offset < 0 || count < 0 || offset > MAX_DIGIT_POSITION - count )
+    		return null;
+    	
+    	int[] result = new int[count];
+    	fillHexDigits(result, offset, 0, count);
+    	return result;
+    }
+    
+    /**
+     * Same as computePiInHex(precision), but returns the digits packed two
+     * per byte, which allows precisions beyond what fits in an int[].
+     * 
+     * If precision < 0 or precision > MAX_DIGIT_POSITION, return null.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve.
+     * @return precision digits of pi in hexadecimal.
+     */
+    public static PackedDigits computePiInHexPacked(long precision)
+    {
+    	if( precision < 0 || precision > MAX_DIGIT_POSITION )
+    		return null;
+    	
+    	PackedDigits result = PackedDigits.forBase(16, precision);
+    	for( long i=0; i < precision; i += HEX_DIGITS_PER_BLOCK )
+    	{
+    		int block = piDigitBlock(i+1);
+    		long count = Math.min(HEX_DIGITS_PER_BLOCK, precision - i);
+    		for( int digit=0; digit < count; ++digit )
+    			result.set(i+digit, (block >>> (4 * (HEX_DIGITS_PER_BLOCK - 1 - digit))) & 0xF);
+    	}
+    	return result;
+    }
+    
+    /**
+     * Returns the first precision hex digits of the fractional part of pi as
+     * a stream, in the same order as computePiInHex(precision). The digits
+     * are computed as the stream is consumed and never held all at once, so
+     * precision is not limited by the heap. A parallel stream splits the
+     * digits so that every piece costs about the same to compute.
+     * 
+     * If precision < 0 or precision > MAX_DIGIT_POSITION, return null.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  stream.
+     * @return A stream of precision digits of pi in hexadecimal.
+     */
+    public static IntStream streamPiInHex(long precision)
+    {
+    	if( precision < 0 || precision > MAX_DIGIT_POSITION )
+    		return null;
+    	
+    	return StreamSupport.intStream(new PiHexSpliterator(0, precision), false);
+    }
+    
+    /**
+     * Fills result[start..end) with the hex digits of pi at indexes
+     * offset+start..offset+end, one piDigitBlock evaluation per
+     * HEX_DIGITS_PER_BLOCK digits.
+     */
+    private static void fillHexDigits(int[] result, long offset, int start, int end)
+    {
+    	for( int i=start; i < end; i += HEX_DIGITS_PER_BLOCK )
+    	{
+    		int block = piDigitBlock(offset + i + 1);
+    		int count = Math.min(HEX_DIGITS_PER_BLOCK, end - i);
+    		for( int digit=0; digit < count; ++digit )
+    			result[i+digit] = (block >>> (4 * (HEX_DIGITS_PER_BLOCK - 1 - digit))) & 0xF;
+    	}
+    }
+
+    /**
+     * Same as computePiInHex(precision), but computes the digits on the
+     * threads of the given pool. Every digit is independent of the others, so
+     * the digit range is split recursively and each piece is written straight
+     * into its slot of the output array.
+     * 
+     * Block i costs roughly i iterations of piTerm, so ranges are split where
+     * their estimated cost is halved rather than where their length is halved.
+     * Otherwise the threads handed the low digits would finish early and sit
+     * idle.
+     * 
+     * If precision < 0 or pool is null, return null.
+     * 
+     * @param precision The number of digits after the decimal place to
+     *                  retrieve.
+     * @param pool The pool to compute the digits on.
+     * @return precision digits of pi in hexadecimal.
+     */
+    public static int[] computePiInHex(int precision, ForkJoinPool pool)
+    {
+    	if( precision < 0 || pool == null )
+    		return null;
+    	
+    	int[] result = new int[precision];
+    	double leafCost = Math.max(DigitRangeTask.MIN_LEAF_COST, 
+    			DigitRangeTask.cost(0, precision) / (pool.getParallelism() * DigitRangeTask.LEAVES_PER_THREAD));
+    	pool.invoke(new DigitRangeTask(result, 0, precision, leafCost));
+    	return result;
+    }
+    
+    /**
+     * Same as computePiInHex(precision, pool) using the common ForkJoinPool.
+     */
+    public static int[] computePiInHexParallel(int precision)
+    {
+    	return computePiInHex(precision, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Fills result[start..end) with the digits of pi, splitting the range at
+     * its cost midpoint until a piece is cheaper than leafCost.
+     */
+    private static class DigitRangeTask extends RecursiveAction
+    {
+		private static final long serialVersionUID = 1L;
+		
+		// Extra iterations per block spent on the right sums of piTerm.
+		private static final double TAIL_COST = 16;
+		// Several leaves per thread let work stealing smooth out the estimate.
+		private static final int LEAVES_PER_THREAD = 8;
+		private static final double MIN_LEAF_COST = 1 << 17;
+		
+		private final int[] result;
+		private final int start;
+		private final int end;
+		private final double leafCost;
+		
+		DigitRangeTask(int[] result, int start, int end, double leafCost)
+		{
+			this.result = result;
+			this.start = start;
+			this.end = end;
+			this.leafCost = leafCost;
+		}
+		
+		@Override
+		protected void compute() 
+		{
+			if( end - start <= HEX_DIGITS_PER_BLOCK || cost(start, end) <= leafCost )
+			{
+				fillHexDigits(result, 0, start, end);
+				return;
+			}
+			
+			int mid = costMidpoint(start, end);
+			invokeAll(new DigitRangeTask(result, start, mid, leafCost),
+					  new DigitRangeTask(result, mid, end, leafCost));
+		}
+		
+		/**
+		 * Estimated cost of the digits at indexes [start, end): the integral
+		 * of (i + TAIL_COST) over the range.
+		 */
+		static double cost(int start, int end)
+		{
+			return cumulativeCost(end) - cumulativeCost(start);
+		}
+		
+		private static double cumulativeCost(double i)
+		{
+			return i * i / 2 + TAIL_COST * i;
+		}
+		
+		/**
+		 * Returns the index that splits [start, end) into two pieces of equal
+		 * estimated cost. The index is a multiple of HEX_DIGITS_PER_BLOCK so
+		 * that every piece starts on a block boundary, and neither piece is
+		 * empty.
+		 */
+		private static int costMidpoint(int start, int end)
+		{
+			double halfway = (cumulativeCost(start) + cumulativeCost(end)) / 2;
+			int mid = (int)(Math.sqrt(TAIL_COST * TAIL_COST + 2 * halfway) - TAIL_COST);
+			mid -= mid % HEX_DIGITS_PER_BLOCK;
+			int lastBlock = (end - 1) - (end - 1) % HEX_DIGITS_PER_BLOCK;
+			return Math.min(lastBlock, Math.max(start + HEX_DIGITS_PER_BLOCK, mid));
+		}
+    }
 
     /**
      * Computes a^b mod m
@@ -35,7 +291,77 @@ public class PiGenerator {
     public static int powerMod(int a, int b, int m) {
         if( a < 0 || b < 0 || m < 0 )
         	return -1;
-    	return (int)Math.pow((double)a, (double)b) % m;
+    	return (int)powerMod((long)a, (long)b, (long)m);
+    }
+    
+    /**
+     * Computes a^b mod m exactly by binary square-and-multiply, so it never
+     * overflows the way Math.pow(a, b) does once b is more than a few dozen.
+     * 
+     * If a < 0, b < 0, or m < 0, return -1. m must be less than MAX_MODULUS.
+     * 
+     * @param a
+     * @param b
+     * @param m
+     * @return a^b mod m
+     */
+    public static long powerMod(long a, long b, long m)
+    {
+    	if( a < 0 || b < 0 || m < 0 )
+    		return -1;
+    	
+    	long result = 1 % m;
+    	long square = a % m;
+    	for( ; b > 0; b >>= 1 )
+    	{
+    		if( (b & 1) != 0 )
+    			result = multiplyMod(result, square, m);
+    		square = multiplyMod(square, square, m);
+    	}
+    	return result;
+    }
+    
+    /**
+     * The largest modulus powerMod and the digit kernel work with.
+     */
+    public static final long MAX_MODULUS = 1L << 55;
+    
+    /**
+     * Computes a * b mod m for 0 <= a, b < m < MAX_MODULUS.
+     */
+    private static long multiplyMod(long a, long b, long m)
+    {
+    	if( m <= 1L << 31 )
+    		return a * b % m;
+    	
+    	// The product overflows a long, so estimate the quotient in floating
+    	// point. It is off by at most a few units, which leaves the wrapped
+    	// difference small enough to fix up with one more remainder.
+    	long quotient = (long)((double)a * b / m);
+    	long remainder = (a * b - quotient * m) % m;
+    	return remainder < 0 ? remainder + m : remainder;
+    }
+    
+    /**
+     * Computes 16^e mod m for 0 < m < MAX_MODULUS. Same as
+     * powerMod(16, e, m), but walks the bits of 2^(4e) from the top so that
+     * every multiply by the base is a shift instead of a multiplyMod.
+     */
+    private static long powerOf16Mod(long e, long m)
+    {
+    	long exponent = 4 * e;
+    	long result = 1 % m;
+    	for( int bit=63 - Long.numberOfLeadingZeros(exponent); bit >= 0; --bit )
+    	{
+    		result = multiplyMod(result, result, m);
+    		if( ((exponent >>> bit) & 1) != 0 )
+    		{
+    			result <<= 1;
+    			if( result >= m )
+    				result -= m;
+    		}
+    	}
+    	return result;
     }
     
     /**
@@ -49,38 +375,182 @@ public class PiGenerator {
     public static int piDigit(int n) {
         if (n < 0) return -1;
         
-        n -= 1;
-        double x = 4 * piTerm(1, n) - 2 * piTerm(4, n) -
-                   piTerm(5, n) - piTerm(6, n);
-        x = x - Math.floor(x);
-        
-        return (int)(x * 16);
+        return piDigitBlock(n) >>> (4 * (HEX_DIGITS_PER_BLOCK - 1));
+    }
+    
+    /**
+     * The number of hex digits a single evaluation of piDigitBlock returns.
+     */
+    public static final int HEX_DIGITS_PER_BLOCK = 8;
+    
+    /**
+     * The largest n piDigitBlock accepts. Beyond it the denominators of the
+     * series no longer fit below MAX_MODULUS.
+     */
+    public static final long MAX_DIGIT_POSITION = (MAX_MODULUS - 8) / 8;
+    
+    /**
+     * Computes the nth through (n+7)th digits of Pi in base-16 with a single
+     * sweep of the BBP series, packed into an int with the nth digit in the
+     * most significant nibble.
+     * 
+     * Each series term is evaluated exactly as (16^(n-k) mod r) / r in 64-bit
+     * fixed point, so the only error is one truncation per term. When that
+     * error could reach into the returned digits, the sweep is redone in
+     * 128-bit fixed point.
+     * 
+     * If n < 0 or n > MAX_DIGIT_POSITION, return -1. Note that -1 is also
+     * the valid block "FFFFFFFF", so callers should validate n themselves.
+     * 
+     * @param n The position of the first digit of Pi to retrieve in base-16.
+     * @return HEX_DIGITS_PER_BLOCK digits of Pi in base-16 starting at n.
+     */
+    public static int piDigitBlock(long n)
+    {
+    	if( n < 0 || n > MAX_DIGIT_POSITION )
+    		return -1;
+    	
+    	n -= 1;
+    	long x = 4 * piTerm(1, n) - 2 * piTerm(4, n) - piTerm(5, n) - piTerm(6, n);
+    	
+    	// Each of the 8 weighted term sweeps loses less than one unit in the
+    	// last place per term, and the right sums add at most 16 more terms.
+    	long errorBound = 8 * (n + 1 + 16);
+    	long discarded = x & 0xFFFFFFFFL;
+    	if( errorBound < 1L << 31 && discarded >= errorBound && discarded <= (1L << 32) - errorBound )
+    		return (int)(x >>> 32);
+    	
+    	long[] wide = new long[2];
+    	addWidePiTerm(wide, 1, n, 4);
+    	addWidePiTerm(wide, 4, n, -2);
+    	addWidePiTerm(wide, 5, n, -1);
+    	addWidePiTerm(wide, 6, n, -1);
+    	return (int)(wide[0] >>> 32);
     }
     
-    private static double piTerm(int j, int n) {
+    /**
+     * Returns the fractional part of sum over k of 16^(n-k) / (8k + j) as a
+     * 64-bit binary fraction. Overflow past 2^64 is the integer part, so plain
+     * wrapping addition keeps exactly the fraction.
+     */
+    private static long piTerm(int j, long n) {
         // Calculate the left sum
-        double s = 0;
-        for (int k = 0; k <= n; ++k) {
-            int r = 8 * k + j;
-            s += powerMod(16, n-k, r) / (double) r;
-            s = s - Math.floor(s);
+        long s = 0;
+        for (long k = 0; k <= n; ++k) {
+            long r = 8 * k + j;
+            s += fraction(powerOf16Mod(n-k, r), r);
         }
         
-        // Calculate the right sum
-        double t = 0;
-        int k = n+1;
-        // Keep iterating until t converges (stops changing)
-        while (true) {
-            int r = 8 * k + j;
-            double newt = t + Math.pow(16, n-k) / r;
-            if (t == newt) {
-                break;
-            } else {
-                t = newt;
-            }
-            ++k;
+        // Calculate the right sum, 16^(n-k) / r = 2^(64 - 4(k-n)) / r until
+        // the terms drop below one unit in the last place.
+        for (long k = n+1; 4 * (k-n) < 64; ++k) {
+            long r = 8 * k + j;
+            s += (1L << (64 - 4 * (k-n))) / r;
         }
         
-        return s+t;
+        return s;
+    }
+    
+    /**
+     * Returns floor(x * 2^64 / r) for 0 <= x < r < MAX_MODULUS, by long
+     * division in chunks small enough that the shifted remainder never
+     * overflows.
+     */
+    private static long fraction(long x, long r)
+    {
+    	int chunkBits = r <= 1L << 31 ? 32 : 8;
+    	long quotient = 0;
+    	for( int bits=0; bits < 64; bits += chunkBits )
+    	{
+    		x <<= chunkBits;
+    		quotient = (quotient << chunkBits) | (x / r);
+    		x %= r;
+    	}
+    	return quotient;
+    }
+    
+    /**
+     * Same as piTerm, but in 128-bit fixed point. Adds weight times the term
+     * to sum, where sum[0] holds the high 64 bits and sum[1] the low 64 bits.
+     */
+    private static void addWidePiTerm(long[] sum, int j, long n, int weight)
+    {
+    	long[] term = new long[2];
+    	long[] quotient = new long[2];
+    	for( long k=0; k <= n; ++k )
+    	{
+    		long r = 8 * k + j;
+    		wideFraction(powerOf16Mod(n-k, r), r, quotient);
+    		addWide(term, quotient[0], quotient[1]);
+    	}
+    	for( long k=n+1; 4 * (k-n) < 128; ++k )
+    	{
+    		long r = 8 * k + j;
+    		int shift = 4 * (int)(k-n);
+    		// floor(2^(128 - shift) / r) == floor(2^128 / r) >> shift
+    		if( r == 1 )
+    		{
+    			quotient[0] = shift > 64 ? 0 : Long.MIN_VALUE >>> (shift - 1);
+    			quotient[1] = shift > 64 ? 1L << (128 - shift) : 0;
+    		}
+    		else
+    		{
+    			wideFraction(1, r, quotient);
+    			shiftRightWide(quotient, shift);
+    		}
+    		addWide(term, quotient[0], quotient[1]);
+    	}
+    	
+    	for( int i=0; i < Math.abs(weight); ++i )
+    		if( weight > 0 )
+    			addWide(sum, term[0], term[1]);
+    		else
+    			addWide(sum, ~term[0] + (term[1] == 0 ? 1 : 0), -term[1]);
+    }
+    
+    /**
+     * Stores floor(x * 2^128 / r) for 0 <= x < r < MAX_MODULUS into
+     * quotient as {high 64 bits, low 64 bits}.
+     */
+    private static void wideFraction(long x, long r, long[] quotient)
+    {
+    	long high = 0;
+    	long low = 0;
+    	for( int bits=0; bits < 128; bits += 8 )
+    	{
+    		x <<= 8;
+    		high = (high << 8) | (low >>> 56);
+    		low = (low << 8) | (x / r);
+    		x %= r;
+    	}
+    	quotient[0] = high;
+    	quotient[1] = low;
+    }
+    
+    /**
+     * Shifts the 128-bit value {high, low} right by 0 < shift < 128 bits.
+     */
+    private static void shiftRightWide(long[] value, int shift)
+    {
+    	if( shift >= 64 )
+    	{
+    		value[1] = value[0] >>> (shift - 64);
+    		value[0] = 0;
+    	}
+    	else
+    	{
+    		value[1] = (value[1] >>> shift) | (value[0] << (64 - shift));
+    		value[0] >>>= shift;
+    	}
+    }
+    
+    /**
+     * Adds {high, low} to sum modulo 2^128.
+     */
+    private static void addWide(long[] sum, long high, long low)
+    {
+    	long newLow = sum[1] + low;
+    	sum[0] += high + (Long.compareUnsigned(newLow, low) < 0 ? 1 : 0);
+    	sum[1] = newLow;
     }
 }
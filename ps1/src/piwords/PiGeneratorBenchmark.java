@@ -0,0 +1,64 @@
+package piwords;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times PiGenerator.computePiInHex on 1, 2, 4 and all available cores and
+ * prints the speedup over the single-threaded loop.
+ * 
+ * Usage: PiGeneratorBenchmark [precision] [repetitions]
+ */
+public class PiGeneratorBenchmark 
+{
+    public static final int DEFAULT_PRECISION = 10000;
+    public static final int DEFAULT_REPETITIONS = 3;
+    
+    public static void main(String[] args) 
+    {
+    	int precision = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PRECISION;
+    	int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_REPETITIONS;
+    	int cores = Runtime.getRuntime().availableProcessors();
+    	
+    	System.out.printf("Computing %d hex digits of pi, best of %d runs, %d cores available\n", 
+    					  precision, repetitions, cores);
+    	
+    	int[] expected = PiGenerator.computePiInHex(precision);
+    	long sequentialNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		PiGenerator.computePiInHex(precision);
+    		sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+    	}
+    	System.out.printf("sequential: %8.1f ms\n", sequentialNanos / 1e6);
+    	
+    	for( int threads : threadCounts(cores) )
+    	{
+    		ForkJoinPool pool = new ForkJoinPool(threads);
+    		long bestNanos = Long.MAX_VALUE;
+    		for( int rep=0; rep < repetitions; ++rep )
+    		{
+    			long start = System.nanoTime();
+    			int[] digits = PiGenerator.computePiInHex(precision, pool);
+    			bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    			if( !Arrays.equals(expected, digits) )
+    				throw new IllegalStateException("parallel digits differ from sequential digits");
+    		}
+    		pool.shutdown();
+    		System.out.printf("%3d threads: %8.1f ms, speedup %.2fx\n", 
+    						  threads, bestNanos / 1e6, (double)sequentialNanos / bestNanos);
+    	}
+    }
+    
+    private static int[] threadCounts(int cores)
+    {
+    	if( cores <= 1 )
+    		return new int[] {1};
+    	if( cores <= 2 )
+    		return new int[] {1, 2};
+    	if( cores <= 4 )
+    		return new int[] {1, 2, cores};
+    	return new int[] {1, 2, 4, cores};
+    }
+}
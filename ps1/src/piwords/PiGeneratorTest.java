@@ -2,6 +2,9 @@ package piwords;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 
 public class PiGeneratorTest {
@@ -52,11 +55,85 @@ public class PiGeneratorTest {
     	int[] piHexPrecision5 = {0x2, 0x4, 0x3, 0xF, 0x6};
     	assertArrayEquals(piHexPrecision5, PiGenerator.computePiInHex(5));
     	
-    	// not the same as herongyang. bug, or inaccuracy in the alg? Assuming the latter.
-    	int[] piHexPrecision10 = {0x2, 0x4, 0x3, 0xF, 0x6, 0xA, 0x8, 0x8, 0x5, 0x7};
+    	int[] piHexPrecision10 = {0x2, 0x4, 0x3, 0xF, 0x6, 0xA, 0x8, 0x8, 0x8, 0x5};
     	assertArrayEquals(piHexPrecision10, PiGenerator.computePiInHex(10));
     }
     
+    @Test
+    public void computePiInHexTest_FirstBlowfishDigits()
+    {
+    	String expected = "243F6A8885A308D313198A2E03707344A4093822299F31D0082EFA98EC4E6C89";
+    	int[] digits = PiGenerator.computePiInHex(expected.length());
+    	for( int i=0; i < expected.length(); ++i )
+    		assertEquals(Character.digit(expected.charAt(i), 16), digits[i]);
+    }
+    
+    @Test
+    public void powerModTest_LargeExponent()
+    {
+    	assertEquals(1, PiGenerator.powerMod(16L, 1000L, 17L));
+    	assertEquals(1, PiGenerator.powerMod(2, 1000000006, 1000000007));
+    	assertEquals(1L, PiGenerator.powerMod(2L, 1000000000038L, 1000000000039L));
+    	assertEquals(-1L, PiGenerator.powerMod(-2L, 3L, 5L));
+    }
+    
+    @Test
+    public void piDigitBlockTest()
+    {
+    	assertEquals(0x243F6A88, PiGenerator.piDigitBlock(1));
+    	assertEquals(0x85A308D3, PiGenerator.piDigitBlock(9));
+    	assertEquals(0x3243F6A8, PiGenerator.piDigitBlock(0));
+    	assertEquals(-1, PiGenerator.piDigitBlock(-1));
+    	
+    	// The hex digits of pi starting at the millionth are 26C65E52CB4593...
+    	assertEquals(0x26C65E52, PiGenerator.piDigitBlock(1000000));
+    }
+    
+    @Test
+    public void hexDigitsAtTest()
+    {
+    	assertArrayEquals(PiGenerator.computePiInHex(64), PiGenerator.hexDigitsAt(0, 64));
+    	
+    	int[] prefix = PiGenerator.computePiInHex(100);
+    	for( int offset : new int[] {1, 7, 8, 9, 50, 93} )
+    		assertArrayEquals(Arrays.copyOfRange(prefix, offset, 100), 
+    						  PiGenerator.hexDigitsAt(offset, 100 - offset));
+    	
+    	int[] millionth = {0x2, 0x6, 0xC, 0x6, 0x5, 0xE, 0x5, 0x2, 0xC, 0xB, 0x4, 0x5, 0x9, 0x3};
+    	assertArrayEquals(millionth, PiGenerator.hexDigitsAt(999999, millionth.length));
+    }
+    
+    @Test
+    public void hexDigitsAtTest_InvalidInput()
+    {
+    	assertArrayEquals(new int[0], PiGenerator.hexDigitsAt(12345, 0));
+    	assertNull(PiGenerator.hexDigitsAt(-1, 1));
+    	assertNull(PiGenerator.hexDigitsAt(0, -1));
+    	assertNull(PiGenerator.hexDigitsAt(Long.MAX_VALUE, 1));
+    	assertNull(PiGenerator.hexDigitsAt(PiGenerator.MAX_DIGIT_POSITION, 10));
+    }
+    
+    @Test
+    public void sourceForTest()
+    {
+    	int small = PiGenerator.BINARY_SPLITTING_THRESHOLD - 1;
+    	int large = PiGenerator.BINARY_SPLITTING_THRESHOLD;
+    	assertTrue(PiGenerator.sourceFor(small) instanceof BbpPiDigitSource);
+    	assertTrue(PiGenerator.sourceFor(large) instanceof ChudnovskyPiDigitSource);
+    	assertArrayEquals(PiGenerator.computePiInHex(small), PiGenerator.sourceFor(small).computePiInHex(small));
+    	assertArrayEquals(PiGenerator.computePiInHex(large), PiGenerator.sourceFor(large).computePiInHex(large));
+    }
+    
+    @Test
+    public void isExtractionCheaperTest()
+    {
+    	// Below the threshold the whole prefix would be extracted too.
+    	assertTrue(PiGenerator.isExtractionCheaper(0, PiGenerator.BINARY_SPLITTING_THRESHOLD - 1));
+    	assertTrue(PiGenerator.isExtractionCheaper(100000, 8));
+    	assertFalse(PiGenerator.isExtractionCheaper(100000, 1000));
+    	assertFalse(PiGenerator.isExtractionCheaper(10, 20000));
+    }
+    
     @Test 
     public void computePiInHexTest_PrecisionLessThanOne()
     {
@@ -70,5 +147,38 @@ public class PiGeneratorTest {
     {
     	assertArrayEquals(new int[0], PiGenerator.computePiInHex(0));
     }
+    
+    @Test
+    public void computePiInHexParallelTest_MatchesSequential()
+    {
+    	ForkJoinPool pool = new ForkJoinPool(4);
+    	try
+    	{
+    		for( int precision : new int[] {0, 1, 2, 7, 100, 1000} )
+    			assertArrayEquals(PiGenerator.computePiInHex(precision), 
+    							  PiGenerator.computePiInHex(precision, pool));
+    	}
+    	finally
+    	{
+    		pool.shutdown();
+    	}
+    	assertArrayEquals(PiGenerator.computePiInHex(500), PiGenerator.computePiInHexParallel(500));
+    }
+    
+    @Test
+    public void computePiInHexParallelTest_InvalidInput()
+    {
+    	assertNull(PiGenerator.computePiInHex(-1, ForkJoinPool.commonPool()));
+    	assertNull(PiGenerator.computePiInHex(10, null));
+    	assertNull(PiGenerator.computePiInHexParallel(-1));
+    }
+    
+    @Test
+    public void computePiInHexPackedTest()
+    {
+    	assertArrayEquals(PiGenerator.computePiInHex(77), PiGenerator.computePiInHexPacked(77).toIntArray());
+    	assertEquals(0, PiGenerator.computePiInHexPacked(0).length());
+    	assertNull(PiGenerator.computePiInHexPacked(-1));
+    }
 
 }
@@ -0,0 +1,100 @@
+package piwords;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A Spliterator over a window of the hex digits of the fractional part of
+ * pi, computed lazily with PiGenerator.piDigitBlock as it is traversed.
+ * 
+ * At most one block of PiGenerator.HEX_DIGITS_PER_BLOCK digits is buffered,
+ * so traversing any number of digits takes constant memory. Splitting hands
+ * off the front of the window at its cost midpoint, since later digits are
+ * more expensive to compute than earlier ones.
+ */
+public class PiHexSpliterator implements Spliterator.OfInt 
+{
+	// Windows shorter than this are not worth splitting.
+	private static final long MIN_SPLIT_SIZE = 8 * PiGenerator.HEX_DIGITS_PER_BLOCK;
+	
+	private long position;
+	private final long end;
+	
+	private int block;
+	private long blockStart = -1;
+	
+	/**
+	 * Creates a spliterator over digits [offset, offset + count), where digit
+	 * i is computePiInHex(i + 1)[i].
+	 * 
+	 * @throws IllegalArgumentException if offset < 0, count < 0, or the
+	 *         window reaches past PiGenerator.MAX_DIGIT_POSITION.
+	 */
+	public PiHexSpliterator(long offset, long count)
+	{
+		if( offset < 0 || count < 0 || offset > PiGenerator.MAX_DIGIT_POSITION - count )
+			throw new IllegalArgumentException("invalid digit window: offset " + offset + ", count " + count);
+		
+		this.position = offset;
+		this.end = offset + count;
+	}
+	
+	@Override
+	public boolean tryAdvance(IntConsumer action) 
+	{
+		if( position >= end )
+			return false;
+		
+		action.accept(digitAt(position++));
+		return true;
+	}
+	
+	@Override
+	public void forEachRemaining(IntConsumer action)
+	{
+		while( position < end )
+			action.accept(digitAt(position++));
+	}
+	
+	private int digitAt(long index)
+	{
+		if( blockStart < 0 || index < blockStart || index >= blockStart + PiGenerator.HEX_DIGITS_PER_BLOCK )
+		{
+			blockStart = index;
+			block = PiGenerator.piDigitBlock(index + 1);
+		}
+		int shift = 4 * (PiGenerator.HEX_DIGITS_PER_BLOCK - 1 - (int)(index - blockStart));
+		return (block >>> shift) & 0xF;
+	}
+
+	@Override
+	public Spliterator.OfInt trySplit() 
+	{
+		if( end - position < MIN_SPLIT_SIZE )
+			return null;
+		
+		// Digit i costs about i, so the cost midpoint of [position, end) is
+		// where the integral of i is halved.
+		double start = position;
+		long mid = (long)Math.sqrt((start * start + (double)end * end) / 2);
+		mid -= (mid - position) % PiGenerator.HEX_DIGITS_PER_BLOCK;
+		if( mid <= position || mid >= end )
+			return null;
+		
+		PiHexSpliterator prefix = new PiHexSpliterator(position, mid - position);
+		position = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() 
+	{
+		return end - position;
+	}
+
+	@Override
+	public int characteristics() 
+	{
+		return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+	}
+}
@@ -0,0 +1,75 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.junit.Test;
+
+public class PiHexSpliteratorTest 
+{
+    @Test
+    public void streamPiInHexTest_MatchesComputePiInHex()
+    {
+    	for( int precision : new int[] {0, 1, 8, 9, 100} )
+    		assertArrayEquals(PiGenerator.computePiInHex(precision), 
+    						  PiGenerator.streamPiInHex(precision).toArray());
+    }
+    
+    @Test
+    public void streamPiInHexTest_Parallel()
+    {
+    	assertArrayEquals(PiGenerator.computePiInHex(1000), 
+    					  PiGenerator.streamPiInHex(1000).parallel().toArray());
+    }
+    
+    @Test
+    public void streamPiInHexTest_InvalidInput()
+    {
+    	assertNull(PiGenerator.streamPiInHex(-1));
+    	assertNull(PiGenerator.streamPiInHex(Long.MAX_VALUE));
+    }
+    
+    @Test
+    public void tryAdvanceTest_Window()
+    {
+    	final int[] expected = PiGenerator.hexDigitsAt(999, 21);
+    	final AtomicInteger index = new AtomicInteger();
+    	PiHexSpliterator digits = new PiHexSpliterator(999, 21);
+    	IntConsumer check = new IntConsumer() {
+    		@Override
+    		public void accept(int digit) 
+    		{
+    			assertEquals(expected[index.getAndIncrement()], digit);
+    		}
+    	};
+    	
+    	assertEquals(21, digits.estimateSize());
+    	while( digits.tryAdvance(check) );
+    	assertEquals(21, index.get());
+    	assertEquals(0, digits.estimateSize());
+    	assertFalse(digits.tryAdvance(check));
+    }
+    
+    @Test
+    public void trySplitTest_PiecesCoverWindowInOrder()
+    {
+    	PiHexSpliterator suffix = new PiHexSpliterator(0, 10000);
+    	Spliterator.OfInt prefix = suffix.trySplit();
+    	assertNotNull(prefix);
+    	assertEquals(10000, prefix.estimateSize() + suffix.estimateSize());
+    	// Later digits cost more, so the front piece is the longer one.
+    	assertTrue(prefix.estimateSize() > suffix.estimateSize());
+    	assertEquals(0, prefix.estimateSize() % PiGenerator.HEX_DIGITS_PER_BLOCK);
+    	
+    	assertNull(new PiHexSpliterator(0, 10).trySplit());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_NegativeOffset()
+    {
+    	new PiHexSpliterator(-1, 10);
+    }
+}
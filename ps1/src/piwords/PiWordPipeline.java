@@ -0,0 +1,230 @@
+package piwords;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the stages of Main - computing hex digits of pi, converting them to
+ * another base, spelling them with an alphabet, and searching the text for
+ * words - at the same time instead of one after another.
+ * 
+ * Digits are computed on one thread with PiGenerator.sourceFor, as Main
+ * does, and handed in chunks through a bounded queue to a
+ * StreamingBaseTranslator on a second thread, which passes the letters it
+ * can already be sure of through another bounded queue to a
+ * WordMatcher.Scanner on the calling thread. Digit extraction could start
+ * handing out chunks sooner, but its cost grows with the square of the
+ * precision, so the nearly linear binary splitting source finishes first
+ * even though nothing is handed on until it does. Conversion and search
+ * then overlap, and the wall-clock time approaches that of computing the
+ * digits plus the slower of the other two stages.
+ * 
+ * See PiWordPipelineBenchmark for a comparison with running the stages one
+ * after another.
+ */
+public class PiWordPipeline 
+{
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+	public static final int DEFAULT_QUEUE_CHUNKS = 8;
+	
+	// Marks the end of the data on a queue.
+	private static final int[] END_OF_DIGITS = new int[0];
+	private static final char[] END_OF_TEXT = new char[0];
+	
+	private final int precision;
+	private final int base;
+	private final char[] alphabet;
+	private final WordMatcher matcher;
+	private final int chunkSize;
+	private final int queueChunks;
+	
+	/**
+	 * Same as PiWordPipeline(precision, base, alphabet, matcher,
+	 * DEFAULT_CHUNK_SIZE, DEFAULT_QUEUE_CHUNKS).
+	 */
+	public PiWordPipeline(int precision, int base, char[] alphabet, WordMatcher matcher)
+	{
+		this(precision, base, alphabet, matcher, DEFAULT_CHUNK_SIZE, DEFAULT_QUEUE_CHUNKS);
+	}
+	
+	/**
+	 * Sets up a pipeline that searches the text spelled by precision hex
+	 * digits of pi converted to precision digits of base, as Main does.
+	 * 
+	 * @param precision The number of hex digits, and of digits in base.
+	 * @param base The base to convert into.
+	 * @param alphabet The letter for each digit of base. Not mutated.
+	 * @param matcher The compiled needles to search for.
+	 * @param chunkSize The number of digits or letters handed between
+	 *                  stages at once.
+	 * @param queueChunks The number of chunks each queue holds.
+	 * @throws IllegalArgumentException If precision < 1, base < 2,
+	 *         alphabet.length != base, matcher is null, chunkSize < 1,
+	 *         or queueChunks < 1.
+	 */
+	public PiWordPipeline(int precision, int base, char[] alphabet, WordMatcher matcher, 
+						  int chunkSize, int queueChunks)
+	{
+		if( precision < 1 || base < 2 || alphabet == null || alphabet.length != base || matcher == null
+				|| chunkSize < 1 || queueChunks < 1 )
+			throw new IllegalArgumentException("invalid pipeline: precision " + precision + ", base " + base);
+		
+		this.precision = precision;
+		this.base = base;
+		this.alphabet = alphabet.clone();
+		this.matcher = matcher;
+		this.chunkSize = chunkSize;
+		this.queueChunks = queueChunks;
+	}
+	
+	/**
+	 * Runs the pipeline and returns the first occurrence of each needle
+	 * found, in the same form as WordFinder.getSubstrings.
+	 * 
+	 * @return The list of needles that were found in the text.
+	 * @throws InterruptedException If the calling thread is interrupted
+	 *         while waiting for the other stages.
+	 */
+	public Map<String, Integer> run() throws InterruptedException
+	{
+		final BlockingQueue<int[]> hexChunks = new ArrayBlockingQueue<int[]>(queueChunks);
+		final BlockingQueue<char[]> textChunks = new ArrayBlockingQueue<char[]>(queueChunks);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			Future<Void> producer = executor.submit(new Callable<Void>()
+			{
+				@Override
+				public Void call() throws InterruptedException
+				{
+					produceDigits(hexChunks);
+					return null;
+				}
+			});
+			Future<Void> translator = executor.submit(new Callable<Void>()
+			{
+				@Override
+				public Void call() throws InterruptedException
+				{
+					translateDigits(hexChunks, textChunks);
+					return null;
+				}
+			});
+			
+			WordMatcher.Scanner scanner = matcher.scanner();
+			for( char[] chunk=textChunks.take(); chunk != END_OF_TEXT; chunk=textChunks.take() )
+				for( char letter : chunk )
+					scanner.accept(letter);
+			
+			// The translator is checked first: if it failed, the producer
+			// may be stuck on a full queue, and is interrupted below.
+			translator.get();
+			producer.get();
+			
+			return WordFinder.getSubstrings(matcher, scanner);
+		}
+		catch( ExecutionException e )
+		{
+			throw new IllegalStateException("pipeline stage failed", e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Computes the hex digits of pi and hands them on a chunk at a time. The
+	 * end marker is always sent, so the next stage finishes even if this one
+	 * fails.
+	 */
+	private void produceDigits(BlockingQueue<int[]> hexChunks) throws InterruptedException
+	{
+		try
+		{
+			int[] hexDigits = PiGenerator.sourceFor(precision).computePiInHex(precision);
+			for( int offset=0; offset < precision; offset += chunkSize )
+				hexChunks.put(Arrays.copyOfRange(hexDigits, offset, Math.min(offset + chunkSize, precision)));
+		}
+		finally
+		{
+			hexChunks.put(END_OF_DIGITS);
+		}
+	}
+	
+	/**
+	 * Converts each chunk of hex digits as it arrives and sends on the
+	 * letters of every output digit that is certain, a chunk at a time.
+	 */
+	private void translateDigits(BlockingQueue<int[]> hexChunks, BlockingQueue<char[]> textChunks) 
+			throws InterruptedException
+	{
+		try
+		{
+			TextBuffer text = new TextBuffer(alphabet, chunkSize);
+			StreamingBaseTranslator translator = new StreamingBaseTranslator(16, base, precision, text);
+			for( int[] chunk=hexChunks.take(); chunk != END_OF_DIGITS; chunk=hexChunks.take() )
+			{
+				translator.append(chunk);
+				if( text.length() >= chunkSize )
+					textChunks.put(text.drain());
+			}
+			translator.finish();
+			if( text.length() > 0 )
+				textChunks.put(text.drain());
+		}
+		finally
+		{
+			textChunks.put(END_OF_TEXT);
+		}
+	}
+	
+	/**
+	 * Spells the digits it is given with an alphabet, holding the letters
+	 * until they are drained.
+	 */
+	private static class TextBuffer implements IntConsumer
+	{
+		private final char[] alphabet;
+		private char[] letters;
+		private int length = 0;
+		
+		TextBuffer(char[] alphabet, int capacity)
+		{
+			this.alphabet = alphabet;
+			this.letters = new char[capacity];
+		}
+		
+		@Override
+		public void accept(int digit) 
+		{
+			if( length == letters.length )
+				letters = Arrays.copyOf(letters, 2 * length);
+			letters[length++] = alphabet[digit];
+		}
+		
+		int length()
+		{
+			return length;
+		}
+		
+		/**
+		 * @return The letters held, which are then forgotten.
+		 */
+		char[] drain()
+		{
+			char[] drained = Arrays.copyOf(letters, length);
+			length = 0;
+			return drained;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package piwords;
+
+import java.util.Map;
+
+/**
+ * Times PiWordPipeline against running Main's stages one after another -
+ * computing the hex digits with PiGenerator.sourceFor, converting them with
+ * BaseTranslator.convertBaseWithLimbs, and searching the spelled text with
+ * WordFinder.getSubstrings - and checks that both find the same words.
+ * 
+ * Usage: PiWordPipelineBenchmark [precision] [base] [repetitions]
+ */
+public class PiWordPipelineBenchmark 
+{
+    public static final int DEFAULT_PRECISION = 20000;
+    public static final int DEFAULT_BASE = 26;
+    public static final int DEFAULT_REPETITIONS = 3;
+    
+    public static void main(String[] args) throws InterruptedException 
+    {
+    	int precision = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PRECISION;
+    	int base = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BASE;
+    	int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_REPETITIONS;
+    	
+    	System.out.printf("Searching %d digits of pi in base %d, best of %d runs\n", 
+    					  precision, base, repetitions);
+    	
+    	char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(base, Main.WORD_LIST);
+    	WordMatcher matcher = new WordMatcher(Main.WORD_LIST);
+    	
+    	Map<String, Integer> expected = null;
+    	long sequentialNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		int[] hex = PiGenerator.sourceFor(precision).computePiInHex(precision);
+    		int[] digits = BaseTranslator.convertBaseWithLimbs(hex, 16, base, precision);
+    		String text = DigitsToStringConverter.convertDigitsToString(digits, base, alphabet);
+    		expected = WordFinder.getSubstrings(text, matcher);
+    		sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+    	}
+    	System.out.printf("%-11s %10.1f ms\n", "sequential:", sequentialNanos / 1e6);
+    	
+    	PiWordPipeline pipeline = new PiWordPipeline(precision, base, alphabet, matcher);
+    	long bestNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		Map<String, Integer> output = pipeline.run();
+    		bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    		if( !expected.equals(output) )
+    			throw new IllegalStateException("pipeline found different words");
+    	}
+    	System.out.printf("%-11s %10.1f ms, speedup %.2fx\n", "pipeline:", bestNanos / 1e6, 
+    					  (double)sequentialNanos / bestNanos);
+    }
+}
@@ -0,0 +1,43 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PiWordPipelineTest 
+{
+    @Test
+    public void runTest_MatchesSequentialStages() throws InterruptedException
+    {
+    	int precision = 1500;
+    	int[] hex = PiGenerator.computePiInHex(precision);
+    	char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(100, Main.WORD_LIST);
+    	String text = DigitsToStringConverter.convertDigitsToString(
+    			BaseTranslator.convertBase(hex, 16, 100, precision), 100, alphabet);
+    	Map<String, Integer> expected = WordFinder.getSubstrings(text, Main.WORD_LIST);
+    	
+    	WordMatcher matcher = new WordMatcher(Main.WORD_LIST);
+    	assertEquals(expected, new PiWordPipeline(precision, 100, alphabet, matcher).run());
+    	// Small chunks and queues make the stages wait on each other.
+    	assertEquals(expected, new PiWordPipeline(precision, 100, alphabet, matcher, 7, 1).run());
+    	
+    	String basicText = DigitsToStringConverter.convertDigitsToString(
+    			BaseTranslator.convertBase(hex, 16, 26, precision), 26, Main.BASIC_ALPHABET);
+    	assertEquals(WordFinder.getSubstrings(basicText, Main.WORD_LIST), 
+    				 new PiWordPipeline(precision, 26, Main.BASIC_ALPHABET, matcher, 100, 2).run());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_AlphabetTooShort()
+    {
+    	new PiWordPipeline(100, 26, new char[25], new WordMatcher(Main.WORD_LIST));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_NoChunks()
+    {
+    	new PiWordPipeline(100, 26, Main.BASIC_ALPHABET, new WordMatcher(Main.WORD_LIST), 0, 1);
+    }
+}
@@ -0,0 +1,196 @@
+package piwords;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Searches pi for words while the precision keeps being raised, without
+ * redoing the work of earlier precisions.
+ * 
+ * Raising the precision feeds the new hex digits to a
+ * StreamingBaseTranslator, which keeps the converted digits already emitted
+ * and adds only those the new hex digits make certain. The new letters are
+ * then searched, starting maxNeedleLength - 1 letters back so that words
+ * crossing into them are found, and only for words that have not been
+ * found yet. Conversion and search therefore cost time in proportion to
+ * the new digits.
+ * 
+ * Generating the hex digits does not: extracting a digit with
+ * PiGenerator.hexDigitsAt costs time in proportion to its position. A short
+ * extension is extracted when PiGenerator.isExtractionCheaper says so.
+ * Otherwise the digits are recomputed from PiGenerator.sourceFor, at least
+ * doubling the number held, so that a long run of small extensions
+ * recomputes only a logarithmic number of times and costs about twice a
+ * single computation of the final precision.
+ * 
+ * A PiWordSession must only be used by one thread at a time.
+ */
+public class PiWordSession 
+{
+	private final String[] words;
+	private final char[] alphabet;
+	private final StreamingBaseTranslator translator;
+	private final StringBuilder text = new StringBuilder();
+	// The hex digits of pi computed so far, which may run ahead of those
+	// fed to the translator.
+	private int[] hexDigits = new int[0];
+	
+	private final Map<String, Integer> found = new HashMap<String, Integer>();
+	// Matches only the words not found yet, rebuilt when some are found.
+	private WordMatcher unfoundMatcher;
+	
+	/**
+	 * Starts a session with no digits computed yet.
+	 * 
+	 * @param base The base to convert pi into.
+	 * @param alphabet The letter for each digit of base. Not mutated.
+	 * @param words The words to search for. Not mutated.
+	 * @throws IllegalArgumentException If base < 2, alphabet.length != base,
+	 *         or words is null.
+	 */
+	public PiWordSession(int base, char[] alphabet, String[] words)
+	{
+		if( base < 2 || alphabet == null || alphabet.length != base || words == null )
+			throw new IllegalArgumentException("invalid session: base " + base);
+		
+		this.words = words.clone();
+		this.alphabet = alphabet.clone();
+		unfoundMatcher = new WordMatcher(this.words);
+		
+		// The output is never finished, so every digit emitted is one the
+		// hex digits computed so far make certain.
+		translator = new StreamingBaseTranslator(16, base, Integer.MAX_VALUE, new IntConsumer()
+		{
+			@Override
+			public void accept(int digit) 
+			{
+				text.append(PiWordSession.this.alphabet[digit]);
+			}
+		});
+	}
+	
+	/**
+	 * Computes hex digits of pi up to hexPrecision, converts and searches
+	 * the letters they add, and returns the number of words found for the
+	 * first time. Does nothing if hexPrecision is not above hexPrecision().
+	 * 
+	 * @param hexPrecision The number of hex digits of pi to have computed.
+	 * @return The number of words newly found.
+	 * @throws IllegalArgumentException If hexPrecision is beyond
+	 *         PiGenerator.MAX_DIGIT_POSITION.
+	 */
+	public int extendTo(int hexPrecision)
+	{
+		long read = translator.digitsRead();
+		if( hexPrecision <= read )
+			return 0;
+		if( hexPrecision > PiGenerator.MAX_DIGIT_POSITION )
+			throw new IllegalArgumentException("precision beyond PiGenerator.MAX_DIGIT_POSITION: " + hexPrecision);
+		computeHexDigits(hexPrecision);
+		
+		int searchedLength = text.length();
+		translator.append(hexDigits, (int)read, (int)(hexPrecision - read));
+		
+		int start = Math.max(0, searchedLength - unfoundMatcher.maxNeedleLength() + 1);
+		int[] firstOccurrences = unfoundMatcher.findFirstOccurrences(text, start, text.length());
+		String[] unfound = unfoundMatcher.needles();
+		List<String> stillUnfound = new ArrayList<String>();
+		int newlyFound = 0;
+		for( int i=0; i < unfound.length; ++i )
+		{
+			if( firstOccurrences[i] == -1 )
+				stillUnfound.add(unfound[i]);
+			else if( !found.containsKey(unfound[i]) )
+			{
+				found.put(unfound[i], firstOccurrences[i]);
+				++newlyFound;
+			}
+		}
+		if( newlyFound > 0 )
+			unfoundMatcher = new WordMatcher(stillUnfound.toArray(new String[stillUnfound.size()]));
+		return newlyFound;
+	}
+	
+	/**
+	 * Makes hexDigits hold at least hexPrecision digits, extracting the
+	 * missing ones or recomputing, whichever is expected to be faster.
+	 */
+	private void computeHexDigits(int hexPrecision)
+	{
+		int known = hexDigits.length;
+		if( hexPrecision <= known )
+			return;
+		
+		int count = hexPrecision - known;
+		if( PiGenerator.isExtractionCheaper(known, count) )
+		{
+			int[] tail = PiGenerator.hexDigitsAt(known, count);
+			hexDigits = Arrays.copyOf(hexDigits, hexPrecision);
+			System.arraycopy(tail, 0, hexDigits, known, count);
+		}
+		else
+		{
+			int target = (int)Math.max(hexPrecision, Math.min(2L * known, Integer.MAX_VALUE - 8));
+			hexDigits = PiGenerator.sourceFor(target).computePiInHex(target);
+		}
+	}
+	
+	/**
+	 * Raises the precision by step hex digits at a time until coverage()
+	 * reaches targetCoverage or the precision reaches maxHexPrecision.
+	 * 
+	 * @param targetCoverage The fraction of the words to find.
+	 * @param step The number of hex digits to add at a time.
+	 * @param maxHexPrecision The most hex digits to compute.
+	 * @return Whether targetCoverage was reached.
+	 * @throws IllegalArgumentException If step < 1.
+	 */
+	public boolean extendUntilCoverage(double targetCoverage, int step, int maxHexPrecision)
+	{
+		if( step < 1 )
+			throw new IllegalArgumentException("step < 1: " + step);
+		
+		while( coverage() < targetCoverage && hexPrecision() < maxHexPrecision )
+			extendTo((int)Math.min(maxHexPrecision, hexPrecision() + (long)step));
+		return coverage() >= targetCoverage;
+	}
+	
+	/**
+	 * @return The number of hex digits of pi computed so far.
+	 */
+	public int hexPrecision()
+	{
+		return (int)translator.digitsRead();
+	}
+	
+	/**
+	 * @return The letters of pi certain so far.
+	 */
+	public String text()
+	{
+		return text.toString();
+	}
+	
+	/**
+	 * @return The words found so far and the index of the text at which
+	 *         each first occurs, in the same form as
+	 *         WordFinder.getSubstrings.
+	 */
+	public Map<String, Integer> foundWords()
+	{
+		return new HashMap<String, Integer>(found);
+	}
+	
+	/**
+	 * @return The number of words found so far divided by the number of
+	 *         words, which is the coverage Main reports.
+	 */
+	public double coverage()
+	{
+		return words.length == 0 ? 1 : (double)found.size() / words.length;
+	}
+}
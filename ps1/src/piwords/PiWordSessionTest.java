@@ -0,0 +1,71 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PiWordSessionTest 
+{
+    @Test
+    public void extendToTest_MatchesFullSearch()
+    {
+    	char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(100, Main.WORD_LIST);
+    	PiWordSession session = new PiWordSession(100, alphabet, Main.WORD_LIST);
+    	assertEquals(0, session.hexPrecision());
+    	assertEquals(0.0, session.coverage(), 0);
+    	
+    	int total = 0;
+    	for( int precision : new int[] {7, 300, 301, 900, 2000} )
+    	{
+    		total += session.extendTo(precision);
+    		assertEquals(precision, session.hexPrecision());
+    		
+    		// The text is the certain prefix of what a full conversion gives.
+    		int[] hex = PiGenerator.computePiInHex(precision);
+    		String text = session.text();
+    		// Digits are emitted in groups of 4 in base 100, so up to a group
+    		// more than the planned guard may be held back.
+    		assertEquals(PrecisionPlanner.trustedDigits(precision, 100), text.length(), 5);
+    		String full = DigitsToStringConverter.convertDigitsToString(
+    				PrecisionPlanner.convertPi(hex, 100, text.length()), 100, alphabet);
+    		assertEquals(full, text);
+    		assertEquals(WordFinder.getSubstrings(text, Main.WORD_LIST), session.foundWords());
+    	}
+    	assertEquals(session.foundWords().size(), total);
+    	assertEquals(0, session.extendTo(1000));
+    	assertEquals(2000, session.hexPrecision());
+    }
+    
+    @Test
+    public void extendToTest_SmallSteps()
+    {
+    	// Steps this small are extracted at first and recomputed later on.
+    	PiWordSession session = new PiWordSession(26, Main.BASIC_ALPHABET, Main.WORD_LIST);
+    	for( int precision=37; precision <= 5000; precision += 37 )
+    		session.extendTo(precision);
+    	
+    	String text = session.text();
+    	int[] hex = PiGenerator.sourceFor(session.hexPrecision()).computePiInHex(session.hexPrecision());
+    	assertEquals(DigitsToStringConverter.convertDigitsToString(
+    			PrecisionPlanner.convertPi(hex, 26, text.length()), 26, Main.BASIC_ALPHABET), text);
+    	assertEquals(WordFinder.getSubstrings(text, Main.WORD_LIST), session.foundWords());
+    }
+    
+    @Test
+    public void extendUntilCoverageTest()
+    {
+    	PiWordSession session = new PiWordSession(26, Main.BASIC_ALPHABET, new String[] {"a", "b", "cc", "zz"});
+    	assertTrue(session.extendUntilCoverage(0.5, 50, 10000));
+    	assertTrue(session.coverage() >= 0.5);
+    	assertTrue(session.hexPrecision() <= 10000);
+    	
+    	assertFalse(new PiWordSession(26, Main.BASIC_ALPHABET, new String[] {"qqqqqqqq"})
+    				.extendUntilCoverage(1, 100, 300));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_AlphabetTooShort()
+    {
+    	new PiWordSession(26, new char[3], Main.WORD_LIST);
+    }
+}
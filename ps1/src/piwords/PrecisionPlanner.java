@@ -0,0 +1,124 @@
+package piwords;
+
+import java.math.BigInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Works out how many hex digits of pi are needed for a number of digits in
+ * another base to be correct, and converts to exactly that many.
+ * 
+ * Truncating pi to n hex digits leaves it uncertain by 16^-n, and
+ * precisionB digits of baseB resolve it to baseB^-precisionB, so n must be
+ * at least precisionB * log16(baseB) for the last output digit to be
+ * right; for baseB = 100 that is 1.66 hex digits per output digit. A
+ * couple of guard digits on top make it very unlikely that the unknown
+ * digits beyond n could carry into the output. Conversions check this
+ * exactly, and fetch more hex digits in the rare case they are needed.
+ */
+public class PrecisionPlanner 
+{
+	public static final int GUARD_HEX_DIGITS = 2;
+	
+	private static final int BITS_PER_HEX_DIGIT = 4;
+	
+	/**
+	 * Returns the number of hex digits of pi to compute so that precisionB
+	 * digits of pi in baseB can be converted from them: the smallest n with
+	 * 16^n >= baseB^precisionB, plus GUARD_HEX_DIGITS.
+	 * 
+	 * If baseB < 2 or precisionB < 0, return -1.
+	 * 
+	 * @param precisionB The number of digits wanted in baseB.
+	 * @param baseB The base the digits are wanted in.
+	 * @return The number of hex digits to compute.
+	 */
+	public static int hexDigitsFor(int precisionB, int baseB)
+	{
+		if( baseB < 2 || precisionB < 0 )
+			return -1;
+		
+		// log2(baseB^precisionB), rounded up, is its bit length, less one
+		// if it is a power of two.
+		BigInteger scale = BigInteger.valueOf(baseB).pow(precisionB);
+		int bits = scale.bitLength() - (scale.bitCount() == 1 ? 1 : 0);
+		return (bits + BITS_PER_HEX_DIGIT - 1) / BITS_PER_HEX_DIGIT + GUARD_HEX_DIGITS;
+	}
+	
+	/**
+	 * Returns the largest number of digits of pi in baseB that can be
+	 * converted from hexDigits hex digits, which is the largest precisionB
+	 * with hexDigitsFor(precisionB, baseB) <= hexDigits.
+	 * 
+	 * If baseB < 2 or hexDigits < 0, return -1.
+	 * 
+	 * @param hexDigits The number of hex digits available.
+	 * @param baseB The base to convert into.
+	 * @return The number of baseB digits those hex digits support.
+	 */
+	public static int trustedDigits(int hexDigits, int baseB)
+	{
+		if( baseB < 2 || hexDigits < 0 )
+			return -1;
+		
+		// Start from the floating-point estimate and correct it exactly.
+		int precisionB = (int)Math.max(0, (hexDigits - GUARD_HEX_DIGITS) * BITS_PER_HEX_DIGIT / (Math.log(baseB) / Math.log(2)));
+		while( precisionB > 0 && hexDigitsFor(precisionB, baseB) > hexDigits )
+			--precisionB;
+		while( hexDigitsFor(precisionB + 1, baseB) <= hexDigits )
+			++precisionB;
+		return precisionB;
+	}
+	
+	/**
+	 * Converts the leading hex digits of pi to precisionB digits of pi in
+	 * baseB, all of them correct. hexDigits is normally
+	 * hexDigitsFor(precisionB, baseB) digits long. If that turns out not to
+	 * be enough because a carry from further digits can't be ruled out, or
+	 * hexDigits is shorter, the missing digits are computed with
+	 * PiGenerator.hexDigitsAt until the output is certain.
+	 * 
+	 * If hexDigits is null, contains values outside [0, 16), or would need
+	 * digits beyond PiGenerator.MAX_DIGIT_POSITION, or if baseB < 2 or
+	 * precisionB < 1, return null.
+	 * 
+	 * @param hexDigits The first hex digits of the fractional part of pi, as
+	 *                  from PiGenerator.computePiInHex. Not mutated.
+	 * @param baseB The base to convert into.
+	 * @param precisionB The number of digits to convert into.
+	 * @return precisionB correct digits of pi in baseB.
+	 */
+	public static int[] convertPi(int[] hexDigits, int baseB, int precisionB)
+	{
+		if( hexDigits == null || baseB < 2 || precisionB < 1 )
+			return null;
+		for( int digit : hexDigits )
+			if( digit < 0 || digit >= 16 )
+				return null;
+		
+		final int[] output = new int[precisionB];
+		final int[] emitted = {0};
+		IntConsumer collect = new IntConsumer()
+		{
+			@Override
+			public void accept(int digit) 
+			{
+				output[emitted[0]++] = digit;
+			}
+		};
+		
+		// The translator only emits digits the unread hex digits cannot
+		// change, so emitting all precisionB of them certifies the output.
+		StreamingBaseTranslator translator = new StreamingBaseTranslator(16, baseB, precisionB, collect);
+		translator.append(hexDigits);
+		while( translator.digitsEmitted() < precisionB )
+		{
+			long read = translator.digitsRead();
+			int needed = Math.max(GUARD_HEX_DIGITS, hexDigitsFor(precisionB, baseB) - (int)read);
+			int[] more = PiGenerator.hexDigitsAt(read, needed);
+			if( more == null )
+				return null;
+			translator.append(more);
+		}
+		return output;
+	}
+}
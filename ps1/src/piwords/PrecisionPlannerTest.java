@@ -0,0 +1,74 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PrecisionPlannerTest 
+{
+    @Test
+    public void hexDigitsForTest()
+    {
+    	// 16^n >= 16^p exactly at n = p, and 2^p needs p / 4 rounded up.
+    	assertEquals(10 + PrecisionPlanner.GUARD_HEX_DIGITS, PrecisionPlanner.hexDigitsFor(10, 16));
+    	assertEquals(3 + PrecisionPlanner.GUARD_HEX_DIGITS, PrecisionPlanner.hexDigitsFor(9, 2));
+    	assertEquals(2 + PrecisionPlanner.GUARD_HEX_DIGITS, PrecisionPlanner.hexDigitsFor(8, 2));
+    	// 100^10000 is just under 16^16610.
+    	assertEquals(16610 + PrecisionPlanner.GUARD_HEX_DIGITS, PrecisionPlanner.hexDigitsFor(10000, 100));
+    	assertEquals(PrecisionPlanner.GUARD_HEX_DIGITS, PrecisionPlanner.hexDigitsFor(0, 26));
+    	
+    	assertEquals(-1, PrecisionPlanner.hexDigitsFor(10, 1));
+    	assertEquals(-1, PrecisionPlanner.hexDigitsFor(-1, 26));
+    }
+    
+    @Test
+    public void trustedDigitsTest()
+    {
+    	for( int base : new int[] {2, 10, 16, 26, 100, 65536} )
+    	{
+    		for( int hexDigits : new int[] {0, 1, 2, 3, 10, 1000, 10000} )
+    		{
+    			int trusted = PrecisionPlanner.trustedDigits(hexDigits, base);
+    			assertTrue(PrecisionPlanner.hexDigitsFor(trusted, base) <= hexDigits || trusted == 0);
+    			assertTrue(PrecisionPlanner.hexDigitsFor(trusted + 1, base) > hexDigits);
+    		}
+    	}
+    	assertEquals(-1, PrecisionPlanner.trustedDigits(10, 1));
+    	assertEquals(-1, PrecisionPlanner.trustedDigits(-1, 26));
+    }
+    
+    @Test
+    public void convertPiTest_MatchesLongerConversion()
+    {
+    	// Converting from far more hex digits than needed gives the correct
+    	// digits, which the planned conversion must reproduce.
+    	int[] reference = PiGenerator.computePiInHex(3000);
+    	for( int base : new int[] {10, 26, 100} )
+    	{
+    		int precision = 1000;
+    		int[] expected = BaseTranslator.convertBase(reference, 16, base, precision);
+    		int[] planned = PiGenerator.computePiInHex(PrecisionPlanner.hexDigitsFor(precision, base));
+    		assertArrayEquals(expected, PrecisionPlanner.convertPi(planned, base, precision));
+    		
+    		// Too few hex digits are topped up.
+    		assertArrayEquals(expected, PrecisionPlanner.convertPi(PiGenerator.computePiInHex(100), base, precision));
+    		assertArrayEquals(expected, PrecisionPlanner.convertPi(new int[0], base, precision));
+    	}
+    	
+    	// Converting too few hex digits directly leaves a wrong tail.
+    	int[] tooShort = PiGenerator.computePiInHex(1000);
+    	int[] naive = BaseTranslator.convertBase(tooShort, 16, 100, 1000);
+    	assertFalse(Arrays.equals(BaseTranslator.convertBase(reference, 16, 100, 1000), naive));
+    }
+    
+    @Test
+    public void convertPiTest_InvalidInput()
+    {
+    	assertNull(PrecisionPlanner.convertPi(null, 26, 10));
+    	assertNull(PrecisionPlanner.convertPi(new int[] {16}, 26, 10));
+    	assertNull(PrecisionPlanner.convertPi(new int[] {1}, 1, 10));
+    	assertNull(PrecisionPlanner.convertPi(new int[] {1}, 26, 0));
+    }
+}
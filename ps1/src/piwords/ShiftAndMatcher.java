@@ -0,0 +1,184 @@
+package piwords;
+
+import java.util.Arrays;
+
+/**
+ * A bit-parallel (Shift-And) matcher for many short needles over a
+ * haystack of bytes. Every needle gets one bit per character, and the
+ * needles are packed side by side into 64-bit words, so a haystack
+ * character advances 64 bits of match state with one shift, one or and one
+ * and per word. The scan has no branches that depend on the text except
+ * the test for a completed needle.
+ * 
+ * This beats the WordMatcher automaton when all the needles fit in a few
+ * words, and loses to it when there are many needles, since the work per
+ * character grows with the total needle length instead of staying
+ * constant. WordFinderBenchmark compares the two.
+ * 
+ * The haystack is read as Latin-1 bytes, so needles containing chars above
+ * 0xFF are never found. A ShiftAndMatcher is immutable and can be shared
+ * between threads.
+ */
+public class ShiftAndMatcher 
+{
+	public static final int MAX_NEEDLE_LENGTH = Long.SIZE;
+	
+	private final String[] needles;
+	private final int[] needleLengths;
+	private final int numWords;
+	
+	// The column of the mask table for every byte, 0 for bytes that appear in
+	// no needle.
+	private final int[] byteClass;
+	// Bit j of word w of masks[c * numWords + w] is set if the needle
+	// character at bit j of word w is in class c.
+	private final long[] masks;
+	// The bits of each word at which needles start and end.
+	private final long[] startBits;
+	private final long[] endBits;
+	
+	// The needles that end at bit b of word w are
+	// needleIds[outputStart[64*w + b]..outputStart[64*w + b + 1]).
+	private final int[] outputStart;
+	private final int[] needleIds;
+	
+	/**
+	 * Packs needles into a matcher. Null and empty needles are never found.
+	 * 
+	 * @param needles The strings to search for. This array is not mutated.
+	 * @throws IllegalArgumentException If a needle is longer than
+	 *         MAX_NEEDLE_LENGTH.
+	 */
+	public ShiftAndMatcher(String[] needles)
+	{
+		this.needles = needles.clone();
+		needleLengths = new int[needles.length];
+		
+		// Lay the needles out in words first fit, so that none straddles two
+		// words and no shift has to carry between words.
+		byteClass = new int[256];
+		int classes = 1;
+		int[] needleBit = new int[needles.length];
+		int bitsInWord = 0;
+		int words = 0;
+		for( int i=0; i < needles.length; ++i )
+		{
+			if( needles[i] == null || needles[i].isEmpty() || !isLatin1(needles[i]) )
+			{
+				needleBit[i] = -1;
+				continue;
+			}
+			needleLengths[i] = needles[i].length();
+			if( needleLengths[i] > MAX_NEEDLE_LENGTH )
+				throw new IllegalArgumentException("Needle longer than " + MAX_NEEDLE_LENGTH + ": " + needles[i]);
+			
+			if( words == 0 || bitsInWord + needleLengths[i] > Long.SIZE )
+			{
+				++words;
+				bitsInWord = 0;
+			}
+			needleBit[i] = (words - 1) * Long.SIZE + bitsInWord;
+			bitsInWord += needleLengths[i];
+			for( int j=0; j < needleLengths[i]; ++j )
+				if( byteClass[needles[i].charAt(j)] == 0 )
+					byteClass[needles[i].charAt(j)] = classes++;
+		}
+		numWords = words;
+		
+		masks = new long[classes * numWords];
+		startBits = new long[numWords];
+		endBits = new long[numWords];
+		outputStart = new int[numWords * Long.SIZE + 1];
+		for( int i=0; i < needles.length; ++i )
+		{
+			if( needleBit[i] < 0 )
+				continue;
+			int word = needleBit[i] / Long.SIZE;
+			int bit = needleBit[i] % Long.SIZE;
+			for( int j=0; j < needleLengths[i]; ++j )
+				masks[byteClass[needles[i].charAt(j)] * numWords + word] |= 1L << (bit + j);
+			startBits[word] |= 1L << bit;
+			endBits[word] |= 1L << (bit + needleLengths[i] - 1);
+			++outputStart[needleBit[i] + needleLengths[i]];
+		}
+		
+		int bits = numWords * Long.SIZE;
+		for( int b=0; b < bits; ++b )
+			outputStart[b + 1] += outputStart[b];
+		needleIds = new int[outputStart[bits]];
+		int[] filled = Arrays.copyOf(outputStart, bits);
+		for( int i=0; i < needles.length; ++i )
+			if( needleBit[i] >= 0 )
+				needleIds[filled[needleBit[i] + needleLengths[i] - 1]++] = i;
+	}
+	
+	private static boolean isLatin1(String s)
+	{
+		for( int i=0; i < s.length(); ++i )
+			if( s.charAt(i) > 0xFF )
+				return false;
+		return true;
+	}
+	
+	/**
+	 * @return A copy of the needles this matcher was compiled for.
+	 */
+	public String[] needles()
+	{
+		return needles.clone();
+	}
+	
+	/**
+	 * Returns, for every needle, the lowest index of haystack at which it
+	 * occurs, or -1 if it does not occur. Entry i belongs to needles[i].
+	 * 
+	 * @param haystack The text to search, one Latin-1 character per byte.
+	 * @return The first occurrence of each needle.
+	 */
+	public int[] findFirstOccurrences(byte[] haystack)
+	{
+		int[] first = new int[needles.length];
+		Arrays.fill(first, -1);
+		int remaining = needleIds.length;
+		
+		long[] state = new long[numWords];
+		for( int i=0; i < haystack.length && remaining > 0; ++i )
+		{
+			int row = byteClass[haystack[i] & 0xFF] * numWords;
+			for( int w=0; w < numWords; ++w )
+			{
+				long bits = ((state[w] << 1) | startBits[w]) & masks[row + w];
+				state[w] = bits;
+				long ended = bits & endBits[w];
+				if( ended != 0 )
+					remaining -= recordMatches(first, w, ended, i);
+			}
+		}
+		return first;
+	}
+	
+	/**
+	 * Records the needles that end at index i at the set bits of ended in
+	 * word w, unless they were already found.
+	 * 
+	 * @return The number of needles found for the first time.
+	 */
+	private int recordMatches(int[] first, int w, long ended, int i)
+	{
+		int newlyFound = 0;
+		for( ; ended != 0; ended &= ended - 1 )
+		{
+			int bit = w * Long.SIZE + Long.numberOfTrailingZeros(ended);
+			for( int j=outputStart[bit]; j < outputStart[bit + 1]; ++j )
+			{
+				int id = needleIds[j];
+				if( first[id] < 0 )
+				{
+					first[id] = i - needleLengths[id] + 1;
+					++newlyFound;
+				}
+			}
+		}
+		return newlyFound;
+	}
+}
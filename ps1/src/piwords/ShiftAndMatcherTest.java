@@ -0,0 +1,60 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ShiftAndMatcherTest 
+{
+	private byte[] latin1(String s)
+	{
+		return s.getBytes(StandardCharsets.ISO_8859_1);
+	}
+	
+    @Test
+    public void findFirstOccurrencesTest_Basic()
+    {
+    	String[] needles = {"ab", "abc", "de", "fg", "", null, "cde", "e"};
+    	ShiftAndMatcher matcher = new ShiftAndMatcher(needles);
+    	assertArrayEquals(new int[] {0, 0, 3, -1, -1, -1, 2, 4}, matcher.findFirstOccurrences(latin1("abcde")));
+    	assertArrayEquals(new int[] {-1, -1, -1, -1, -1, -1, -1, -1}, matcher.findFirstOccurrences(new byte[0]));
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_NonLatin1()
+    {
+    	ShiftAndMatcher matcher = new ShiftAndMatcher(new String[] {"caf\u00e9", "\u0101", "f"});
+    	assertArrayEquals(new int[] {0, -1, 2}, matcher.findFirstOccurrences(latin1("caf\u00e9 \u0101")));
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_MatchesWordMatcher()
+    {
+    	// The word list fills many words, and needles end at bit 63.
+    	Random random = new Random(6005);
+    	char[] text = new char[100000];
+    	for( int i=0; i < text.length; ++i )
+    		text[i] = (char)('a' + random.nextInt(26));
+    	String haystack = new String(text);
+    	String[] needles = Main.WORD_LIST.clone();
+    	needles[0] = "0123456789012345678901234567890123456789012345678901234567890123";
+    	
+    	assertArrayEquals(new WordMatcher(needles).findFirstOccurrences(haystack), 
+    					  new ShiftAndMatcher(needles).findFirstOccurrences(latin1(haystack)));
+    	
+    	String full = needles[0] + haystack.substring(0, 1000);
+    	assertEquals(0, new ShiftAndMatcher(needles).findFirstOccurrences(latin1(full))[0]);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_NeedleTooLong()
+    {
+    	char[] needle = new char[ShiftAndMatcher.MAX_NEEDLE_LENGTH + 1];
+    	Arrays.fill(needle, 'a');
+    	new ShiftAndMatcher(new String[] {new String(needle)});
+    }
+}
@@ -0,0 +1,235 @@
+package piwords;
+
+import java.math.BigInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Converts a fraction from baseA to baseB while its digits are still
+ * arriving, passing each output digit to a sink as soon as it is certain.
+ * Once finish() is called, the sink has received exactly the digits
+ * BaseTranslator.convertBase would return for the whole input.
+ * 
+ * After m input digits, the input is known to lie in
+ * [x_m, x_m + baseA^-m), where x_m is the fraction those digits spell. An
+ * output digit is certain once both ends of that interval agree on it, so
+ * the unread input acts as a guard: roughly m * log(baseA) / log(baseB)
+ * output digits can be emitted, less a digit or two near carries. The
+ * remaining output digits are emitted by finish(), when the input is known
+ * to end.
+ * 
+ * The state is the part of the fraction not yet emitted, kept as the
+ * numerator of a BigInteger over baseA^m. Appending input adds to it, and
+ * emitting output multiplies it by a power of baseB and takes the quotient,
+ * several output digits at a time. The total work is about the same as one
+ * call to convertBaseWithLimbs on the whole input.
+ * 
+ * A StreamingBaseTranslator must only be used by one thread at a time.
+ */
+public class StreamingBaseTranslator 
+{
+	private final int baseA;
+	private final int baseB;
+	private final int precisionB;
+	private final IntConsumer sink;
+	
+	// Output digits are produced this many at a time, as one quotient below
+	// groupPower = baseB^groupSize.
+	private final int groupSize;
+	private final BigInteger groupPower;
+	// If baseA is a power of two, denominator = 2^(bitsPerDigit * read), and
+	// quotients are taken by shifting.
+	private final int bitsPerDigit;
+	
+	// The fraction not yet emitted is numerator / denominator, where
+	// denominator = baseA^read.
+	private BigInteger numerator = BigInteger.ZERO;
+	private BigInteger denominator = BigInteger.ONE;
+	private long read = 0;
+	// baseB^emitted: how much one unit in the last place read is scaled up
+	// by the digits already emitted.
+	private BigInteger emittedScale = BigInteger.ONE;
+	private int emitted = 0;
+	private boolean finished = false;
+	
+	/**
+	 * Prepares to convert a fraction into precisionB digits of baseB.
+	 * 
+	 * @param baseA The base the input digits are expressed in.
+	 * @param baseB The base to translate into.
+	 * @param precisionB The number of output digits to produce.
+	 * @param sink Receives the precisionB output digits in order, most
+	 *             significant first.
+	 * @throws IllegalArgumentException If baseA < 2, baseB < 2,
+	 *         precisionB < 1, or sink is null.
+	 */
+	public StreamingBaseTranslator(int baseA, int baseB, int precisionB, IntConsumer sink)
+	{
+		if( baseA < 2 || baseB < 2 || precisionB < 1 || sink == null )
+			throw new IllegalArgumentException("invalid conversion: base " + baseA + " to base " + baseB 
+											   + ", precision " + precisionB);
+		
+		this.baseA = baseA;
+		this.baseB = baseB;
+		this.precisionB = precisionB;
+		this.sink = sink;
+		
+		int size = 1;
+		for( long power=baseB; power <= Integer.MAX_VALUE / baseB; power *= baseB )
+			++size;
+		groupSize = size;
+		groupPower = BigInteger.valueOf(baseB).pow(groupSize);
+		bitsPerDigit = Integer.bitCount(baseA) == 1 ? Integer.numberOfTrailingZeros(baseA) : 0;
+	}
+	
+	/**
+	 * Same as append(digits, 0, digits.length).
+	 */
+	public void append(int[] digits)
+	{
+		append(digits, 0, digits.length);
+	}
+	
+	/**
+	 * Appends digits[offset..offset+count) to the input, which continues
+	 * the fraction to the right, and emits every output digit that has
+	 * become certain.
+	 * 
+	 * @throws IllegalArgumentException If a digit is not in [0, baseA), or
+	 *         the range is out of bounds.
+	 * @throws IllegalStateException If finish() has been called.
+	 */
+	public void append(int[] digits, int offset, int count)
+	{
+		if( finished )
+			throw new IllegalStateException("append after finish");
+		if( offset < 0 || count < 0 || offset > digits.length - count )
+			throw new IllegalArgumentException("invalid range: offset " + offset + ", count " + count);
+		if( count == 0 )
+			return;
+		
+		// Collect the new digits into an integer a machine word at a time
+		// before scaling the state.
+		BigInteger chunk = BigInteger.ZERO;
+		BigInteger chunkScale = BigInteger.ONE;
+		long word = 0;
+		long wordScale = 1;
+		for( int i=offset; i < offset + count; ++i )
+		{
+			if( digits[i] < 0 || digits[i] >= baseA )
+				throw new IllegalArgumentException("digit " + digits[i] + " not in base " + baseA);
+			word = word * baseA + digits[i];
+			wordScale *= baseA;
+			if( wordScale > Integer.MAX_VALUE / baseA || i == offset + count - 1 )
+			{
+				chunk = chunk.multiply(BigInteger.valueOf(wordScale)).add(BigInteger.valueOf(word));
+				chunkScale = chunkScale.multiply(BigInteger.valueOf(wordScale));
+				word = 0;
+				wordScale = 1;
+			}
+		}
+		
+		// The new digits sit below the ones already read, and have been
+		// through every multiplication by baseB already emitted.
+		numerator = numerator.multiply(chunkScale).add(chunk.multiply(emittedScale));
+		denominator = denominator.multiply(chunkScale);
+		read += count;
+		
+		emitCertain();
+	}
+	
+	/**
+	 * Emits output groups while the unread input cannot change them.
+	 */
+	private void emitCertain()
+	{
+		while( emitted < precisionB )
+		{
+			int size = Math.min(groupSize, precisionB - emitted);
+			BigInteger scale = size == groupSize ? groupPower : BigInteger.valueOf(baseB).pow(size);
+			BigInteger scaled = numerator.multiply(scale);
+			BigInteger[] quotientAndRemainder = divide(scaled);
+			
+			// The unread input adds less than emittedScale * scale to the
+			// scaled numerator; the group is certain if that cannot carry
+			// into the quotient.
+			BigInteger newScale = emittedScale.multiply(scale);
+			if( quotientAndRemainder[1].add(newScale).compareTo(denominator) > 0 )
+				return;
+			
+			emitGroup(quotientAndRemainder[0].intValue(), size);
+			numerator = quotientAndRemainder[1];
+			emittedScale = newScale;
+		}
+	}
+	
+	/**
+	 * Ends the input and emits the remaining output digits, which are the
+	 * ones convertBase would produce if the input stopped here. Calling
+	 * finish() again has no effect.
+	 */
+	public void finish()
+	{
+		if( finished )
+			return;
+		finished = true;
+		
+		while( emitted < precisionB )
+		{
+			int size = Math.min(groupSize, precisionB - emitted);
+			BigInteger scale = size == groupSize ? groupPower : BigInteger.valueOf(baseB).pow(size);
+			BigInteger[] quotientAndRemainder = divide(numerator.multiply(scale));
+			emitGroup(quotientAndRemainder[0].intValue(), size);
+			numerator = quotientAndRemainder[1];
+		}
+	}
+	
+	private BigInteger[] divide(BigInteger scaled)
+	{
+		if( bitsPerDigit == 0 )
+			return scaled.divideAndRemainder(denominator);
+		
+		int shift = (int)(bitsPerDigit * read);
+		BigInteger quotient = scaled.shiftRight(shift);
+		return new BigInteger[] {quotient, scaled.subtract(quotient.shiftLeft(shift))};
+	}
+	
+	/**
+	 * Emits the size digits of group, most significant first.
+	 */
+	private void emitGroup(int group, int size)
+	{
+		int[] groupDigits = new int[size];
+		for( int i=size-1; i >= 0; --i )
+		{
+			groupDigits[i] = group % baseB;
+			group /= baseB;
+		}
+		for( int i=0; i < size; ++i )
+			sink.accept(groupDigits[i]);
+		emitted += size;
+	}
+	
+	/**
+	 * @return The number of input digits appended so far.
+	 */
+	public long digitsRead()
+	{
+		return read;
+	}
+	
+	/**
+	 * @return The number of output digits passed to the sink so far.
+	 */
+	public int digitsEmitted()
+	{
+		return emitted;
+	}
+	
+	/**
+	 * @return Whether finish() has been called.
+	 */
+	public boolean isFinished()
+	{
+		return finished;
+	}
+}
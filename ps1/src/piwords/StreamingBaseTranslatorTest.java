@@ -0,0 +1,113 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import org.junit.Test;
+
+public class StreamingBaseTranslatorTest 
+{
+	/**
+	 * Collects the digits a StreamingBaseTranslator emits.
+	 */
+	private static class DigitCollector implements IntConsumer
+	{
+		int[] digits = new int[16];
+		int count = 0;
+		
+		@Override
+		public void accept(int digit) 
+		{
+			if( count == digits.length )
+				digits = Arrays.copyOf(digits, 2 * count);
+			digits[count++] = digit;
+		}
+		
+		int[] toArray()
+		{
+			return Arrays.copyOf(digits, count);
+		}
+	}
+	
+	private void assertStreamMatchesConvertBase(int[] digits, int baseA, int baseB, int precisionB, Random random)
+	{
+		DigitCollector collector = new DigitCollector();
+		StreamingBaseTranslator translator = new StreamingBaseTranslator(baseA, baseB, precisionB, collector);
+		for( int offset=0; offset < digits.length; )
+		{
+			int count = Math.min(digits.length - offset, random.nextInt(20));
+			translator.append(digits, offset, count);
+			offset += count;
+			assertEquals(offset, translator.digitsRead());
+			assertEquals(collector.count, translator.digitsEmitted());
+		}
+		translator.finish();
+		assertTrue(translator.isFinished());
+		assertArrayEquals(BaseTranslator.convertBaseWithLimbs(digits, baseA, baseB, precisionB), collector.toArray());
+	}
+	
+    @Test
+    public void appendTest_MatchesConvertBase()
+    {
+    	Random random = new Random(6005);
+    	int[][] basePairs = {{2, 10}, {10, 2}, {16, 26}, {16, 100}, {3, 1000}, {1000, 7}, 
+    						 {65536, 65521}, {10, 10}};
+    	for( int[] bases : basePairs )
+    	{
+    		for( int length : new int[] {0, 1, 5, 17, 64, 200} )
+    		{
+    			int[] digits = new int[length];
+    			for( int i=0; i < length; ++i )
+    				digits[i] = random.nextInt(bases[0]);
+    			for( int precision : new int[] {1, 2, 9, 40, 101} )
+    				assertStreamMatchesConvertBase(digits, bases[0], bases[1], precision, random);
+    		}
+    	}
+    	
+    	// Long runs of the largest digit make carries reach far back.
+    	int[] nines = new int[100];
+    	Arrays.fill(nines, 9);
+    	assertStreamMatchesConvertBase(nines, 10, 2, 300, random);
+    	assertStreamMatchesConvertBase(nines, 10, 10, 120, random);
+    }
+    
+    @Test
+    public void appendTest_EmitsBeforeFinish()
+    {
+    	int[] hex = PiGenerator.computePiInHex(2000);
+    	DigitCollector collector = new DigitCollector();
+    	StreamingBaseTranslator translator = new StreamingBaseTranslator(16, 26, 2000, collector);
+    	translator.append(hex, 0, 1000);
+    	
+    	// 1000 hex digits pin down about 1000 * log(16) / log(26) base-26
+    	// digits, less a group held back for the guard.
+    	assertTrue(collector.count > 800);
+    	assertTrue(collector.count <= 851);
+    	translator.append(hex, 1000, 1000);
+    	translator.finish();
+    	assertArrayEquals(BaseTranslator.convertBase(hex, 16, 26, 2000), collector.toArray());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void appendTest_InvalidDigit()
+    {
+    	new StreamingBaseTranslator(16, 26, 10, new DigitCollector()).append(new int[] {1, 16});
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void appendTest_AfterFinish()
+    {
+    	StreamingBaseTranslator translator = new StreamingBaseTranslator(16, 26, 10, new DigitCollector());
+    	translator.finish();
+    	translator.append(new int[] {1});
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorTest_InvalidBase()
+    {
+    	new StreamingBaseTranslator(1, 26, 10, new DigitCollector());
+    }
+}
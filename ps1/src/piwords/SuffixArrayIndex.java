@@ -0,0 +1,275 @@
+package piwords;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A suffix array over one haystack, for answering many substring queries
+ * against the same text. Building it takes O(n log n); after that each
+ * query binary searches the sorted suffixes in O(|needle| log n), and the
+ * first occurrence comes from a tree of minimums over the suffix array in
+ * another O(log n).
+ * 
+ * The index can be saved to a file and loaded again, so the cost of
+ * building it is paid once per haystack rather than once per run.
+ */
+public class SuffixArrayIndex 
+{
+	public static final int MAGIC = 0x50695358; // "PiSX"
+	public static final int VERSION = 1;
+	
+	private final String text;
+	// Start indexes of the suffixes of text, in lexicographic order.
+	private final int[] suffixes;
+	// minimums[size + i] = suffixes[i]; minimums[i] = min of its two children.
+	private final int[] minimums;
+	
+	/**
+	 * Builds the index for text.
+	 */
+	public SuffixArrayIndex(String text)
+	{
+		this(text, buildSuffixArray(text));
+	}
+	
+	private SuffixArrayIndex(String text, int[] suffixes)
+	{
+		this.text = text;
+		this.suffixes = suffixes;
+		
+		int size = Math.max(1, suffixes.length);
+		minimums = new int[2 * size];
+		Arrays.fill(minimums, Integer.MAX_VALUE);
+		System.arraycopy(suffixes, 0, minimums, size, suffixes.length);
+		for( int i=size - 1; i > 0; --i )
+			minimums[i] = Math.min(minimums[2 * i], minimums[2 * i + 1]);
+	}
+	
+	/**
+	 * Sorts the suffixes of text by prefix doubling: after round h the
+	 * suffixes are sorted by their first 2^h characters, and each round is
+	 * two counting sorts on the ranks from the previous one. A sentinel
+	 * smaller than every character ends the text.
+	 */
+	private static int[] buildSuffixArray(String text)
+	{
+		int n = text.length() + 1;
+		int[] order = new int[n];
+		int[] rank = new int[n];
+		int[] nextOrder = new int[n];
+		int[] nextRank = new int[n];
+		
+		int[] counts = new int[Math.max(n, Character.MAX_VALUE + 2)];
+		for( int i=0; i < n; ++i )
+			++counts[rank[i] = (i < n - 1) ? text.charAt(i) + 1 : 0];
+		for( int i=1; i < counts.length; ++i )
+			counts[i] += counts[i - 1];
+		for( int i=n - 1; i >= 0; --i )
+			order[--counts[rank[i]]] = i;
+		int classes = renumber(order, rank, nextRank, 0, n);
+		int[] swap = rank; rank = nextRank; nextRank = swap;
+		
+		for( int length=1; length < n && classes < n; length *= 2 )
+		{
+			// Sort by the second half, which is the order of the suffixes
+			// starting length earlier, then stably by the first half.
+			for( int i=0; i < n; ++i )
+				nextOrder[i] = (order[i] - length + n) % n;
+			Arrays.fill(counts, 0, classes, 0);
+			for( int i=0; i < n; ++i )
+				++counts[rank[i]];
+			for( int i=1; i < classes; ++i )
+				counts[i] += counts[i - 1];
+			for( int i=n - 1; i >= 0; --i )
+				order[--counts[rank[nextOrder[i]]]] = nextOrder[i];
+			
+			classes = renumber(order, rank, nextRank, length, n);
+			swap = rank; rank = nextRank; nextRank = swap;
+		}
+		
+		// The sentinel sorts first; drop it.
+		return Arrays.copyOfRange(order, 1, n);
+	}
+	
+	/**
+	 * Assigns newRank so that suffixes in order get equal ranks exactly when
+	 * their (rank, rank length later) pairs are equal, and returns the number
+	 * of distinct ranks.
+	 */
+	private static int renumber(int[] order, int[] rank, int[] newRank, int length, int n)
+	{
+		int classes = 1;
+		newRank[order[0]] = 0;
+		for( int i=1; i < n; ++i )
+		{
+			int current = order[i];
+			int previous = order[i - 1];
+			if( rank[current] != rank[previous] || 
+				(length > 0 && rank[(current + length) % n] != rank[(previous + length) % n]) )
+				++classes;
+			newRank[current] = classes - 1;
+		}
+		return classes;
+	}
+	
+	/**
+	 * @return The text this index was built for.
+	 */
+	public String text()
+	{
+		return text;
+	}
+	
+	/**
+	 * Returns the lowest index of the text at which needle occurs, or -1 if
+	 * it does not occur. Null and empty needles never occur.
+	 */
+	public int firstOccurrence(String needle)
+	{
+		int[] range = suffixRange(needle);
+		if( range[0] == range[1] )
+			return -1;
+		
+		int size = minimums.length / 2;
+		int first = Integer.MAX_VALUE;
+		for( int low=range[0] + size, high=range[1] + size; low < high; low /= 2, high /= 2 )
+		{
+			if( (low & 1) == 1 )
+				first = Math.min(first, minimums[low++]);
+			if( (high & 1) == 1 )
+				first = Math.min(first, minimums[--high]);
+		}
+		return first;
+	}
+	
+	/**
+	 * Returns the number of (possibly overlapping) occurrences of needle in
+	 * the text. Null and empty needles never occur.
+	 */
+	public int count(String needle)
+	{
+		int[] range = suffixRange(needle);
+		return range[1] - range[0];
+	}
+	
+	/**
+	 * Returns every index of the text at which needle occurs, in ascending
+	 * order. Null and empty needles never occur.
+	 */
+	public int[] allOccurrences(String needle)
+	{
+		int[] range = suffixRange(needle);
+		int[] occurrences = Arrays.copyOfRange(suffixes, range[0], range[1]);
+		Arrays.sort(occurrences);
+		return occurrences;
+	}
+	
+	/**
+	 * Returns {start, end} such that suffixes[start..end) are exactly the
+	 * suffixes that begin with needle.
+	 */
+	private int[] suffixRange(String needle)
+	{
+		if( needle == null || needle.isEmpty() )
+			return new int[] {0, 0};
+		
+		return new int[] {lowerBound(needle, false), lowerBound(needle, true)};
+	}
+	
+	/**
+	 * Returns the first position in suffixes whose suffix is not less than
+	 * needle, or, if pastPrefix, the first whose suffix neither is less than
+	 * needle nor starts with it.
+	 */
+	private int lowerBound(String needle, boolean pastPrefix)
+	{
+		int low = 0;
+		int high = suffixes.length;
+		while( low < high )
+		{
+			int mid = (low + high) >>> 1;
+			int comparison = comparePrefix(suffixes[mid], needle);
+			if( comparison < 0 || (pastPrefix && comparison == 0) )
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	/**
+	 * Compares the suffix at start, cut to the length of needle, to needle.
+	 */
+	private int comparePrefix(int start, String needle)
+	{
+		int length = Math.min(needle.length(), text.length() - start);
+		for( int i=0; i < length; ++i )
+		{
+			int difference = text.charAt(start + i) - needle.charAt(i);
+			if( difference != 0 )
+				return difference;
+		}
+		return length < needle.length() ? -1 : 0;
+	}
+	
+	/**
+	 * Writes the text and suffix array to file, replacing it.
+	 */
+	public void save(Path file) throws IOException
+	{
+		try( DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file))) )
+		{
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(text.length());
+			output.writeChars(text);
+			for( int i=0; i < suffixes.length; ++i )
+				output.writeInt(suffixes[i]);
+		}
+	}
+	
+	/**
+	 * Reads an index written by save.
+	 * 
+	 * @throws IOException if the file cannot be read or is not a saved
+	 *         index, including one that is truncated or whose suffixes are
+	 *         not a permutation of the text positions.
+	 */
+	public static SuffixArrayIndex load(Path file) throws IOException
+	{
+		long fileSize = Files.size(file);
+		try( DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file))) )
+		{
+			if( input.readInt() != MAGIC || input.readInt() != VERSION )
+				throw new IOException(file + " is not a saved suffix array index");
+			
+			// Each position takes a 2 byte char and a 4 byte suffix after the
+			// 12 byte header, so a longer length can't be genuine.
+			int length = input.readInt();
+			if( length < 0 || length > (fileSize - 12) / 6 )
+				throw new IOException(file + " has an invalid text length " + length);
+			
+			char[] text = new char[length];
+			for( int i=0; i < length; ++i )
+				text[i] = input.readChar();
+			int[] suffixes = new int[length];
+			boolean[] seen = new boolean[length];
+			for( int i=0; i < length; ++i )
+			{
+				suffixes[i] = input.readInt();
+				if( suffixes[i] < 0 || suffixes[i] >= length || seen[suffixes[i]] )
+					throw new IOException(file + " has an invalid suffix " + suffixes[i] + " at " + i);
+				seen[suffixes[i]] = true;
+			}
+			return new SuffixArrayIndex(new String(text), suffixes);
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SuffixArrayIndexTest 
+{
+	private int[] bruteForceOccurrences(String haystack, String needle)
+	{
+		List<Integer> found = new ArrayList<Integer>();
+		for( int i=haystack.indexOf(needle); i >= 0; i=haystack.indexOf(needle, i + 1) )
+			found.add(i);
+		int[] result = new int[found.size()];
+		for( int i=0; i < result.length; ++i )
+			result[i] = found.get(i);
+		return result;
+	}
+	
+	private void assertQueries(SuffixArrayIndex index, String needle)
+	{
+		int[] expected = bruteForceOccurrences(index.text(), needle);
+		assertArrayEquals(expected, index.allOccurrences(needle));
+		assertEquals(expected.length, index.count(needle));
+		assertEquals(index.text().indexOf(needle), index.firstOccurrence(needle));
+	}
+	
+    @Test
+    public void queriesTest_Basic()
+    {
+    	SuffixArrayIndex index = new SuffixArrayIndex("banana");
+    	assertQueries(index, "a");
+    	assertQueries(index, "ana");
+    	assertQueries(index, "banana");
+    	assertQueries(index, "nab");
+    	assertQueries(index, "bananas");
+    	assertEquals(3, index.count("a"));
+    	assertEquals(1, index.firstOccurrence("anana"));
+    }
+    
+    @Test
+    public void queriesTest_EmptyAndNull()
+    {
+    	SuffixArrayIndex index = new SuffixArrayIndex("abc");
+    	assertEquals(-1, index.firstOccurrence(""));
+    	assertEquals(0, index.count(null));
+    	assertArrayEquals(new int[0], index.allOccurrences(""));
+    	
+    	SuffixArrayIndex empty = new SuffixArrayIndex("");
+    	assertEquals(-1, empty.firstOccurrence("a"));
+    	assertEquals(0, empty.count("a"));
+    }
+    
+    @Test
+    public void queriesTest_MatchesBruteForce()
+    {
+    	Random random = new Random(6005);
+    	StringBuilder text = new StringBuilder();
+    	for( int i=0; i < 3000; ++i )
+    		text.append((char)('a' + random.nextInt(4)));
+    	SuffixArrayIndex index = new SuffixArrayIndex(text.toString());
+    	
+    	for( int i=0; i < 300; ++i )
+    	{
+    		StringBuilder needle = new StringBuilder();
+    		for( int j=1 + random.nextInt(8); j > 0; --j )
+    			needle.append((char)('a' + random.nextInt(5)));
+    		assertQueries(index, needle.toString());
+    	}
+    	
+    	// Repetitive text makes prefix doubling run all its rounds.
+    	SuffixArrayIndex repetitive = new SuffixArrayIndex("aaaaaaaaaaaaaaaaaaaaaaaaaaaaab");
+    	assertQueries(repetitive, "aaaa");
+    	assertQueries(repetitive, "ab");
+    }
+    
+    @Test
+    public void saveLoadTest_RoundTrip() throws IOException
+    {
+    	File file = File.createTempFile("suffix-array", ".idx");
+    	try
+    	{
+    		SuffixArrayIndex index = new SuffixArrayIndex("thecatsatonthemat\u00e9");
+    		index.save(file.toPath());
+    		SuffixArrayIndex loaded = SuffixArrayIndex.load(file.toPath());
+    		assertEquals(index.text(), loaded.text());
+    		assertQueries(loaded, "at");
+    		assertQueries(loaded, "the");
+    		assertQueries(loaded, "t\u00e9");
+    	}
+    	finally
+    	{
+    		file.delete();
+    	}
+    }
+    
+    @Test(expected = IOException.class)
+    public void loadTest_NotAnIndex() throws IOException
+    {
+    	File file = File.createTempFile("suffix-array", ".idx");
+    	try
+    	{
+    		Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    		SuffixArrayIndex.load(file.toPath());
+    	}
+    	finally
+    	{
+    		file.delete();
+    	}
+    }
+    
+    @Test
+    public void loadTest_CorruptIndex() throws IOException
+    {
+    	// "aba" sorts to suffixes {2, 0, 1}.
+    	File file = File.createTempFile("suffix-array", ".idx");
+    	try
+    	{
+    		Files.write(file.toPath(), savedIndex(3, "aba", new int[] {2, 0, 1}));
+    		assertEquals(0, SuffixArrayIndex.load(file.toPath()).firstOccurrence("ab"));
+    	}
+    	finally
+    	{
+    		file.delete();
+    	}
+    	
+    	assertLoadFails(savedIndex(Integer.MAX_VALUE, "aba", new int[] {2, 0, 1}));
+    	assertLoadFails(savedIndex(-1, "aba", new int[] {2, 0, 1}));
+    	assertLoadFails(savedIndex(3, "aba", new int[] {2, 0}));
+    	assertLoadFails(savedIndex(3, "aba", new int[] {2, 0, 3}));
+    	assertLoadFails(savedIndex(3, "aba", new int[] {2, -1, 1}));
+    	assertLoadFails(savedIndex(3, "aba", new int[] {2, 0, 2}));
+    }
+    
+    /**
+     * Returns the bytes save would write for text and suffixes, with length
+     * as the stored text length.
+     */
+    private static byte[] savedIndex(int length, String text, int[] suffixes)
+    {
+    	ByteBuffer bytes = ByteBuffer.allocate(12 + 2 * text.length() + 4 * suffixes.length);
+    	bytes.putInt(SuffixArrayIndex.MAGIC).putInt(SuffixArrayIndex.VERSION).putInt(length);
+    	for( int i=0; i < text.length(); ++i )
+    		bytes.putChar(text.charAt(i));
+    	for( int suffix : suffixes )
+    		bytes.putInt(suffix);
+    	return bytes.array();
+    }
+    
+    private static void assertLoadFails(byte[] contents) throws IOException
+    {
+    	File file = File.createTempFile("suffix-array", ".idx");
+    	try
+    	{
+    		Files.write(file.toPath(), contents);
+    		SuffixArrayIndex.load(file.toPath());
+    		fail("loaded a corrupt index");
+    	}
+    	catch( IOException e )
+    	{
+    		// Expected.
+    	}
+    	finally
+    	{
+    		file.delete();
+    	}
+    }
+    
+    @Test
+    public void getSubstringsTest_IndexMatchesScan()
+    {
+    	String haystack = DigitsToStringConverter.convertDigitsToString(
+    			BaseTranslator.convertBaseWithLimbs(PiGenerator.sourceFor(3000).computePiInHex(3000), 16, 26, 3000),
+    			26, Main.BASIC_ALPHABET);
+    	assertEquals(WordFinder.getSubstrings(haystack, Main.WORD_LIST), 
+    				 WordFinder.getSubstrings(new SuffixArrayIndex(haystack), Main.WORD_LIST));
+    }
+}
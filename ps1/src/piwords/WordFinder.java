@@ -2,6 +2,9 @@ package piwords;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
 
 public class WordFinder {
     /**
@@ -23,15 +26,298 @@ public class WordFinder {
         if( haystack == null || needles == null )
     		return new HashMap<String, Integer>();
         else
-        	return populateSubstringMap(haystack, needles);
+        	return getSubstrings(haystack, new WordMatcher(needles));
     }
     
-    private static Map<String, Integer> populateSubstringMap( String haystack,
-    													      String[] needles )
+    /**
+     * Same as getSubstrings(String, String[]), with the needles already
+     * compiled into a WordMatcher. Compiling once and reusing the matcher
+     * across haystacks saves rebuilding it on every call.
+     * 
+     * @param haystack The string to search into.
+     * @param matcher The compiled needles to search for.
+     * @return The list of needles that were found in the haystack.
+     */
+    public static Map<String, Integer> getSubstrings(String haystack,
+    												 WordMatcher matcher)
+    {
+        if( haystack == null || matcher == null )
+    		return new HashMap<String, Integer>();
+        else
+        	return populateSubstringMap(matcher.needles(), matcher.findFirstOccurrences(haystack));
+    }
+    
+    /**
+     * Searches the text that digits spells once converted to baseB and
+     * written with alphabet, as Main does with BaseTranslator.convertBase,
+     * DigitsToStringConverter.convertDigitsToString and getSubstrings. Here
+     * the three steps are fused: each digit coming out of the conversion is
+     * mapped to its letter and fed straight to the matcher, so neither the
+     * converted digits nor the text are ever held in memory.
+     * 
+     * If the conversion input is invalid (see
+     * BaseTranslator.convertBaseWithLimbs), alphabet.length != baseB, or any
+     * argument is null, return an empty map.
+     * 
+     * @param digits The digits to convert. This array is not mutated.
+     * @param baseA The base of digits.
+     * @param baseB The base to convert into.
+     * @param precisionB The number of digits to convert into, which is the
+     *                   length of the searched text.
+     * @param alphabet The letter for each digit of baseB.
+     * @param matcher The compiled needles to search for.
+     * @return The list of needles that were found in the text.
+     */
+    public static Map<String, Integer> getSubstrings(int[] digits, int baseA, int baseB, int precisionB,
+    												 final char[] alphabet, WordMatcher matcher)
+    {
+        if( digits == null || alphabet == null || matcher == null || alphabet.length != baseB )
+    		return new HashMap<String, Integer>();
+        
+        final WordMatcher.Scanner scanner = matcher.scanner();
+        IntConsumer search = new IntConsumer()
+        {
+			@Override
+			public void accept(int digit) 
+			{
+				scanner.accept(alphabet[digit]);
+			}
+        };
+        if( !BaseTranslator.convertBaseWithLimbs(digits, baseA, baseB, precisionB, search) )
+    		return new HashMap<String, Integer>();
+        return getSubstrings(matcher, scanner);
+    }
+    
+    /**
+     * Returns the needles of matcher that scanner has found so far, mapped to
+     * their first occurrence, in the same form as getSubstrings(String,
+     * String[]). For callers that feed a WordMatcher.Scanner themselves.
+     * 
+     * @param matcher The matcher that scanner came from.
+     * @param scanner The scanner that has been fed the haystack.
+     * @return The list of needles that were found in the haystack.
+     */
+    static Map<String, Integer> getSubstrings(WordMatcher matcher, WordMatcher.Scanner scanner)
+    {
+    	return populateSubstringMap(matcher.needles(), scanner.firstOccurrences());
+    }
+    
+    /**
+     * Same as getSubstrings(String, String[]), with the haystack given as
+     * Latin-1 bytes and the needles compiled into a bit-parallel
+     * ShiftAndMatcher, which is faster than a WordMatcher for small sets of
+     * short needles.
+     * 
+     * @param haystack The text to search into, one character per byte.
+     * @param matcher The compiled needles to search for.
+     * @return The list of needles that were found in the haystack.
+     */
+    public static Map<String, Integer> getSubstrings(byte[] haystack,
+    												 ShiftAndMatcher matcher)
+    {
+        if( haystack == null || matcher == null )
+    		return new HashMap<String, Integer>();
+        else
+        	return populateSubstringMap(matcher.needles(), matcher.findFirstOccurrences(haystack));
+    }
+    
+    /**
+     * Same as getSubstrings(haystack, matcher), but splits the haystack into
+     * chunks that are scanned in parallel on pool. Each chunk reads
+     * matcher.maxNeedleLength() - 1 characters into the next one, so needles
+     * that cross a chunk boundary are still found, and the result is the
+     * same as the sequential scan.
+     * 
+     * @param haystack The string to search into.
+     * @param matcher The compiled needles to search for.
+     * @param pool The pool to scan the chunks on.
+     * @return The list of needles that were found in the haystack.
+     */
+    public static Map<String, Integer> getSubstrings(String haystack,
+    												 WordMatcher matcher,
+    												 ForkJoinPool pool)
+    {
+        if( haystack == null || matcher == null || pool == null )
+    		return new HashMap<String, Integer>();
+        
+        int chunkLength = Math.max(ChunkScanTask.MIN_CHUNK_LENGTH, 
+        		haystack.length() / (pool.getParallelism() * ChunkScanTask.CHUNKS_PER_THREAD));
+        int[] firstOccurrences = pool.invoke(new ChunkScanTask(haystack, matcher, 0, haystack.length(), chunkLength));
+        return populateSubstringMap(matcher.needles(), firstOccurrences);
+    }
+    
+    /**
+     * Same as getSubstrings(String, String[]), scanning the haystack in
+     * parallel on the common ForkJoinPool.
+     * 
+     * @param haystack The string to search into.
+     * @param needles The array of strings to search for. This array is not
+     *                mutated.
+     * @return The list of needles that were found in the haystack.
+     */
+    public static Map<String, Integer> getSubstringsParallel(String haystack,
+    														 String[] needles)
+    {
+        if( haystack == null || needles == null )
+    		return new HashMap<String, Integer>();
+        else
+        	return getSubstrings(haystack, new WordMatcher(needles), ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Finds the first occurrences of the matcher's needles that start in
+     * [start, end) of the haystack, splitting the range in half until the
+     * pieces are at most chunkLength long. The halves are merged by taking
+     * the lower index of each needle.
+     */
+    private static class ChunkScanTask extends RecursiveTask<int[]>
+    {
+		private static final long serialVersionUID = 1L;
+		
+		// Several chunks per thread let work stealing even out the scans,
+		// which stop early once every needle has been seen.
+		private static final int CHUNKS_PER_THREAD = 4;
+		private static final int MIN_CHUNK_LENGTH = 1 << 16;
+		
+		private final String haystack;
+		private final WordMatcher matcher;
+		private final int start;
+		private final int end;
+		private final int chunkLength;
+		
+		ChunkScanTask(String haystack, WordMatcher matcher, int start, int end, int chunkLength)
+		{
+			this.haystack = haystack;
+			this.matcher = matcher;
+			this.start = start;
+			this.end = end;
+			this.chunkLength = chunkLength;
+		}
+		
+		@Override
+		protected int[] compute()
+		{
+			if( end - start <= chunkLength )
+				return matcher.findFirstOccurrences(haystack, start, end);
+			
+			int mid = start + (end - start) / 2;
+			ChunkScanTask right = new ChunkScanTask(haystack, matcher, mid, end, chunkLength);
+			right.fork();
+			int[] first = new ChunkScanTask(haystack, matcher, start, mid, chunkLength).compute();
+			int[] second = right.join();
+			for( int i=0; i < first.length; ++i )
+				if( first[i] == -1 )
+					first[i] = second[i];
+			return first;
+		}
+    }
+    
+    /**
+     * Given a haystack and an array of needles, return a Map<String, Long>
+     * from each needle that was found to the number of times it occurs in
+     * haystack, counting overlapping occurrences. A needle that was not
+     * found in the haystack is not returned in the output map.
+     * 
+     * @param haystack The string to search into.
+     * @param needles The array of strings to search for. This array is not
+     *                mutated.
+     * @return The number of occurrences of each needle that was found.
+     */
+    public static Map<String, Long> getOccurrenceCounts(String haystack,
+    													String[] needles)
+    {
+    	HashMap<String, Long> output = new HashMap<String, Long>();
+        if( haystack == null || needles == null )
+    		return output;
+        
+        long[] counts = new WordMatcher(needles).countOccurrences(haystack);
+        for( int i=0; i < needles.length; ++i )
+        	if( counts[i] > 0 )
+        		output.put(needles[i], counts[i]);
+        return output;
+    }
+    
+    /**
+     * Returns every occurrence of the matcher's needles in haystack, stored
+     * as primitive (needleId, index) pairs in the order they were found.
+     * Callers that don't need to keep the occurrences should pass their own
+     * OccurrenceListener to matcher.findAllOccurrences instead.
+     * 
+     * If haystack or matcher is null, return null.
+     * 
+     * @param haystack The string to search into.
+     * @param matcher The compiled needles to search for.
+     * @return All occurrences of the needles, with their counts.
+     */
+    public static OccurrenceList getAllOccurrences(String haystack,
+    											   WordMatcher matcher)
+    {
+        if( haystack == null || matcher == null )
+    		return null;
+        
+        OccurrenceList occurrences = new OccurrenceList(matcher.needles().length);
+        matcher.findAllOccurrences(haystack, occurrences);
+        return occurrences;
+    }
+    
+    /**
+     * Same as getSubstrings(String, String[]), but a needle also counts as
+     * found where at most maxMismatches of its characters differ from the
+     * haystack. The value for each needle found is the lowest index at which
+     * it was found and the number of mismatches there.
+     * 
+     * If maxMismatches < 0, return an empty map.
+     * 
+     * @param haystack The string to search into.
+     * @param needles The array of strings to search for. This array is not
+     *                mutated.
+     * @param maxMismatches The number of characters that may differ.
+     * @return The first approximate match of each needle that was found.
+     */
+    public static Map<String, ApproximateMatch> getApproximateSubstrings(String haystack,
+    																	 String[] needles,
+    																	 int maxMismatches)
+    {
+    	HashMap<String, ApproximateMatch> output = new HashMap<String, ApproximateMatch>();
+        if( haystack == null || needles == null || maxMismatches < 0 )
+    		return output;
+        
+        ApproximateMatch[] matches = new MismatchMatcher(needles, maxMismatches).findFirstOccurrences(haystack);
+        for( int i=0; i < needles.length; ++i )
+        	if( matches[i] != null )
+        		output.put(needles[i], matches[i]);
+        return output;
+    }
+    
+    /**
+     * Same as getSubstrings(String, String[]), but answers from a suffix
+     * array index over the haystack, so each needle costs
+     * O(|needle| log n) no matter how long the haystack is. Worth it when
+     * the same haystack is queried with many needle lists.
+     * 
+     * @param index An index over the haystack to search into.
+     * @param needles The array of strings to search for. This array is not
+     *                mutated.
+     * @return The list of needles that were found in the haystack.
+     */
+    public static Map<String, Integer> getSubstrings(SuffixArrayIndex index,
+    												 String[] needles)
+    {
+        if( index == null || needles == null )
+    		return new HashMap<String, Integer>();
+        
+        int[] firstOccurrences = new int[needles.length];
+        for( int i=0; i < needles.length; ++i )
+        	firstOccurrences[i] = index.firstOccurrence(needles[i]);
+        return populateSubstringMap(needles, firstOccurrences);
+    }
+    
+    private static Map<String, Integer> populateSubstringMap( String[] needles,
+    													      int[] firstOccurrences )
     {
     	HashMap<String, Integer> output = new HashMap<String, Integer>();
         for( int i=0; i < needles.length; ++i )
-        	insertSubstringIntoMap(output, needles[i], haystack.indexOf(needles[i]));
+        	insertSubstringIntoMap(output, needles[i], firstOccurrences[i]);
         return output;
     }
     
@@ -39,7 +325,7 @@ public class WordFinder {
     											String substring,
     											Integer index )
     {
-    	if( substring != "" && index != -1 )
+    	if( index != -1 )
     		substringMap.put(substring, index);
     }
 }
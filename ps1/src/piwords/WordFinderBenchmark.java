@@ -0,0 +1,82 @@
+package piwords;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Times the WordFinder search engines on digits of pi written in the basic
+ * alphabet, and checks that they all find the same first occurrences as a
+ * plain String.indexOf loop.
+ * 
+ * Usage: WordFinderBenchmark [precision] [needles] [repetitions]
+ * 
+ * needles is how many words from the start of Main.WORD_LIST to search
+ * for, since the bit-parallel engine's cost grows with the needle count
+ * while the automaton's does not.
+ */
+public class WordFinderBenchmark 
+{
+    public static final int DEFAULT_PRECISION = 20000;
+    public static final int DEFAULT_REPETITIONS = 3;
+    
+    public static void main(String[] args) 
+    {
+    	int precision = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PRECISION;
+    	int numNeedles = args.length > 1 ? Integer.parseInt(args[1]) : Main.WORD_LIST.length;
+    	int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_REPETITIONS;
+    	
+    	String[] needles = Arrays.copyOf(Main.WORD_LIST, Math.min(numNeedles, Main.WORD_LIST.length));
+    	int[] hex = PiGenerator.sourceFor(precision).computePiInHex(precision);
+    	int[] base26 = BaseTranslator.convertBaseWithLimbs(hex, 16, 26, precision);
+    	String haystack = DigitsToStringConverter.convertDigitsToString(base26, 26, Main.BASIC_ALPHABET);
+    	byte[] haystackBytes = haystack.getBytes(StandardCharsets.ISO_8859_1);
+    	
+    	System.out.printf("Searching %d characters of pi for %d words, best of %d runs\n", 
+    					  haystack.length(), needles.length, repetitions);
+    	
+    	int[] expected = null;
+    	long indexOfNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		expected = new int[needles.length];
+    		for( int i=0; i < needles.length; ++i )
+    			expected[i] = needles[i].isEmpty() ? -1 : haystack.indexOf(needles[i]);
+    		indexOfNanos = Math.min(indexOfNanos, System.nanoTime() - start);
+    	}
+    	System.out.printf("%-14s %10.2f ms\n", "indexOf:", indexOfNanos / 1e6);
+    	
+    	WordMatcher wordMatcher = new WordMatcher(needles);
+    	long bestNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		int[] output = wordMatcher.findFirstOccurrences(haystack);
+    		bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    		check(expected, output);
+    	}
+    	printResult("aho-corasick:", bestNanos, indexOfNanos);
+    	
+    	ShiftAndMatcher shiftAndMatcher = new ShiftAndMatcher(needles);
+    	bestNanos = Long.MAX_VALUE;
+    	for( int rep=0; rep < repetitions; ++rep )
+    	{
+    		long start = System.nanoTime();
+    		int[] output = shiftAndMatcher.findFirstOccurrences(haystackBytes);
+    		bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    		check(expected, output);
+    	}
+    	printResult("shift-and:", bestNanos, indexOfNanos);
+    }
+    
+    private static void check(int[] expected, int[] output)
+    {
+    	if( !Arrays.equals(expected, output) )
+    		throw new IllegalStateException("output differs from indexOf");
+    }
+    
+    private static void printResult(String name, long nanos, long indexOfNanos)
+    {
+    	System.out.printf("%-14s %10.2f ms, speedup %.1fx\n", name, nanos / 1e6, (double)indexOfNanos / nanos);
+    }
+}
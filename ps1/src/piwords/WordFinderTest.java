@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
@@ -55,5 +57,114 @@ public class WordFinderTest
     	expectedResult3.put("b", 1);
     	assertGetSubstrings("ab", new String[] {"a", "b"}, expectedResult3);
     }
+    
+    @Test
+    public void getSubstrings_IndexedHaystack()
+    {
+    	Map<String, Integer> expected = new HashMap<String, Integer>();
+    	expected.put("ab", 0);
+    	expected.put("abc", 0);
+    	expected.put("de", 3);
+    	SuffixArrayIndex index = new SuffixArrayIndex("abcde");
+    	assertEquals(expected, WordFinder.getSubstrings(index, new String[] {"ab", "abc", "de", "fg", ""}));
+    	assertEquals(new HashMap<String, Integer>(), WordFinder.getSubstrings(index, null));
+    	assertEquals(new HashMap<String, Integer>(), WordFinder.getSubstrings((SuffixArrayIndex)null, new String[] {"a"}));
+    }
+    
+    @Test
+    public void getSubstringsParallel_MatchesSequential()
+    {
+    	// Long enough to be split into several chunks, with needles that
+    	// only occur across the chunk boundaries.
+    	Random random = new Random(6005);
+    	char[] haystack = new char[1 << 19];
+    	for( int i=0; i < haystack.length; ++i )
+    		haystack[i] = (char)('a' + random.nextInt(3));
+    	String[] needles = {"a", "abcabc", "xyz", "wxyz", "zzz", "", null};
+    	"wxyz".getChars(0, 4, haystack, (1 << 16) - 2);
+    	"xyz".getChars(0, 3, haystack, (3 << 16) - 1);
+    	"zzz".getChars(0, 3, haystack, (5 << 16) - 2);
+    	String text = new String(haystack);
+    	
+    	Map<String, Integer> expected = WordFinder.getSubstrings(text, needles);
+    	assertEquals(Integer.valueOf((1 << 16) - 2), expected.get("wxyz"));
+    	assertEquals(Integer.valueOf((1 << 16) - 1), expected.get("xyz"));
+    	assertEquals(expected, WordFinder.getSubstringsParallel(text, needles));
+    	ForkJoinPool pool = new ForkJoinPool(4);
+    	try
+    	{
+    		assertEquals(expected, WordFinder.getSubstrings(text, new WordMatcher(needles), pool));
+    	}
+    	finally
+    	{
+    		pool.shutdown();
+    	}
+    	
+    	assertEquals(new HashMap<String, Integer>(), WordFinder.getSubstringsParallel(null, needles));
+    	assertEquals(new HashMap<String, Integer>(), WordFinder.getSubstringsParallel(text, null));
+    }
+    
+    @Test
+    public void getOccurrenceCounts_Overlapping()
+    {
+    	Map<String, Long> expected = new HashMap<String, Long>();
+    	expected.put("aa", 3L);
+    	expected.put("a", 4L);
+    	expected.put("ab", 1L);
+    	assertEquals(expected, WordFinder.getOccurrenceCounts("aaaab", new String[] {"aa", "a", "ab", "ba", ""}));
+    	assertEquals(new HashMap<String, Long>(), WordFinder.getOccurrenceCounts(null, new String[] {"a"}));
+    	assertEquals(new HashMap<String, Long>(), WordFinder.getOccurrenceCounts("a", null));
+    }
+    
+    @Test
+    public void getAllOccurrences_Basic()
+    {
+    	OccurrenceList occurrences = WordFinder.getAllOccurrences("abab", new WordMatcher(new String[] {"ab", "b"}));
+    	assertEquals(4, occurrences.size());
+    	assertArrayEquals(new long[] {2, 2}, occurrences.counts());
+    	// "ab" and "b" end at the same indexes, so only the order of the
+    	// pairs is fixed.
+    	assertEquals(1, occurrences.index(0) + occurrences.index(1));
+    	assertEquals(5, occurrences.index(2) + occurrences.index(3));
+    	assertNull(WordFinder.getAllOccurrences(null, new WordMatcher(new String[] {"a"})));
+    }
+    
+    @Test
+    public void getSubstrings_ShiftAnd()
+    {
+    	String[] needles = {"ab", "abc", "de", "fg"};
+    	Map<String, Integer> expected = WordFinder.getSubstrings("abcde", needles);
+    	assertEquals(expected, WordFinder.getSubstrings(new byte[] {'a', 'b', 'c', 'd', 'e'}, new ShiftAndMatcher(needles)));
+    	assertEquals(new HashMap<String, Integer>(), WordFinder.getSubstrings((byte[])null, new ShiftAndMatcher(needles)));
+    }
+    
+    @Test
+    public void getApproximateSubstrings_Basic()
+    {
+    	Map<String, ApproximateMatch> expected = new HashMap<String, ApproximateMatch>();
+    	expected.put("cat", new ApproximateMatch(0, 1));
+    	expected.put("hat", new ApproximateMatch(4, 0));
+    	assertEquals(expected, WordFinder.getApproximateSubstrings("cot hat", new String[] {"cat", "hat", "dog", "xy"}, 1));
+    	assertEquals(new HashMap<String, ApproximateMatch>(), WordFinder.getApproximateSubstrings("cot", new String[] {"cat"}, -1));
+    	assertEquals(new HashMap<String, ApproximateMatch>(), WordFinder.getApproximateSubstrings(null, new String[] {"cat"}, 1));
+    }
+    
+    @Test
+    public void getSubstrings_FusedPipeline()
+    {
+    	int[] hex = PiGenerator.computePiInHex(1000);
+    	char[] alphabet = AlphabetGenerator.generateFrequencyAlphabet(100, Main.WORD_LIST);
+    	String text = DigitsToStringConverter.convertDigitsToString(
+    			BaseTranslator.convertBase(hex, 16, 100, 1000), 100, alphabet);
+    	WordMatcher matcher = new WordMatcher(Main.WORD_LIST);
+    	
+    	assertEquals(WordFinder.getSubstrings(text, Main.WORD_LIST), 
+    				 WordFinder.getSubstrings(hex, 16, 100, 1000, alphabet, matcher));
+    	
+    	Map<String, Integer> emptyResult = new HashMap<String, Integer>();
+    	assertEquals(emptyResult, WordFinder.getSubstrings(hex, 16, 26, 1000, alphabet, matcher));
+    	assertEquals(emptyResult, WordFinder.getSubstrings(hex, 10, 100, 1000, alphabet, matcher));
+    	assertEquals(emptyResult, WordFinder.getSubstrings(hex, 16, 100, 0, alphabet, matcher));
+    }
 
 }
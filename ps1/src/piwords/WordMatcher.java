@@ -0,0 +1,375 @@
+package piwords;
+
+import java.util.Arrays;
+
+/**
+ * An Aho-Corasick automaton over a fixed set of needles. It is compiled
+ * once and then finds the needles in any number of haystacks, each in a
+ * single left-to-right pass, no matter how many needles there are.
+ * 
+ * The automaton is a complete transition table, so every haystack character
+ * costs one table lookup plus one step per needle that ends there.
+ * Characters that appear in no needle all share one column of the table.
+ * 
+ * A WordMatcher is immutable, so one instance can be shared between
+ * threads.
+ */
+public class WordMatcher 
+{
+	private static final int ROOT = 0;
+	private static final int NO_STATE = -1;
+	
+	private final String[] needles;
+	private final int[] needleLengths;
+	private final int maxNeedleLength;
+	
+	// The column of the transition table for every char, 0 for chars that
+	// appear in no needle.
+	private final char[] charClass;
+	private final int alphabetSize;
+	private final int[] transitions;
+	
+	// The needles that end at each state are
+	// needleIds[outputStart[state]..outputStart[state+1]).
+	private final int[] outputStart;
+	private final int[] needleIds;
+	// The first state at or below each state (following failure links) at
+	// which a needle ends, and the next such state below that.
+	private final int[] firstOutputState;
+	private final int[] nextOutputState;
+	
+	/**
+	 * Compiles an automaton that finds all of needles. Null and empty
+	 * needles are never found.
+	 * 
+	 * @param needles The strings to search for. This array is not mutated.
+	 */
+	public WordMatcher(String[] needles)
+	{
+		this.needles = needles.clone();
+		needleLengths = new int[needles.length];
+		
+		charClass = new char[Character.MAX_VALUE + 1];
+		int classes = 1;
+		int maxStates = 1;
+		int maxLength = 0;
+		for( int i=0; i < needles.length; ++i )
+		{
+			if( needles[i] == null )
+				continue;
+			needleLengths[i] = needles[i].length();
+			maxStates += needleLengths[i];
+			maxLength = Math.max(maxLength, needleLengths[i]);
+			for( int j=0; j < needleLengths[i]; ++j )
+				if( charClass[needles[i].charAt(j)] == 0 )
+					charClass[needles[i].charAt(j)] = (char)classes++;
+		}
+		alphabetSize = classes;
+		maxNeedleLength = maxLength;
+		
+		// Build the trie. 0 doubles as "no child", since no edge leads back
+		// to the root.
+		int[] trie = new int[maxStates * alphabetSize];
+		int[] needleState = new int[needles.length];
+		int states = 1;
+		for( int i=0; i < needles.length; ++i )
+		{
+			int state = ROOT;
+			for( int j=0; j < needleLengths[i]; ++j )
+			{
+				int edge = state * alphabetSize + charClass[needles[i].charAt(j)];
+				if( trie[edge] == 0 )
+					trie[edge] = states++;
+				state = trie[edge];
+			}
+			needleState[i] = needleLengths[i] > 0 ? state : NO_STATE;
+		}
+		transitions = Arrays.copyOf(trie, states * alphabetSize);
+		
+		outputStart = new int[states + 1];
+		for( int i=0; i < needles.length; ++i )
+			if( needleState[i] != NO_STATE )
+				++outputStart[needleState[i] + 1];
+		for( int state=0; state < states; ++state )
+			outputStart[state + 1] += outputStart[state];
+		needleIds = new int[outputStart[states]];
+		int[] filled = Arrays.copyOf(outputStart, states);
+		for( int i=0; i < needles.length; ++i )
+			if( needleState[i] != NO_STATE )
+				needleIds[filled[needleState[i]]++] = i;
+		
+		// Breadth-first, fill in the failure links and complete the
+		// transition table from the failure state's row, which is already
+		// complete because it is shallower.
+		int[] failure = new int[states];
+		firstOutputState = new int[states];
+		nextOutputState = new int[states];
+		firstOutputState[ROOT] = NO_STATE;
+		nextOutputState[ROOT] = NO_STATE;
+		int[] queue = new int[states];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = ROOT;
+		while( head < tail )
+		{
+			int state = queue[head++];
+			for( int symbol=0; symbol < alphabetSize; ++symbol )
+			{
+				int edge = state * alphabetSize + symbol;
+				int child = transitions[edge];
+				int fallback = state == ROOT ? ROOT : transitions[failure[state] * alphabetSize + symbol];
+				if( child == 0 )
+				{
+					transitions[edge] = fallback;
+					continue;
+				}
+				
+				failure[child] = fallback;
+				nextOutputState[child] = firstOutputState[fallback];
+				firstOutputState[child] = hasOutput(child) ? child : nextOutputState[child];
+				queue[tail++] = child;
+			}
+		}
+	}
+	
+	private boolean hasOutput(int state)
+	{
+		return outputStart[state + 1] > outputStart[state];
+	}
+	
+	/**
+	 * @return A copy of the needles this matcher was compiled for.
+	 */
+	public String[] needles()
+	{
+		return needles.clone();
+	}
+	
+	/**
+	 * @return The length of the longest needle, 0 if there are none.
+	 */
+	public int maxNeedleLength()
+	{
+		return maxNeedleLength;
+	}
+	
+	/**
+	 * Returns, for every needle, the lowest index of haystack at which it
+	 * occurs, or -1 if it does not occur. Entry i belongs to needles[i].
+	 * 
+	 * @param haystack The text to search.
+	 * @return The first occurrence of each needle.
+	 */
+	public int[] findFirstOccurrences(CharSequence haystack)
+	{
+		return findFirstOccurrences(haystack, 0, haystack.length());
+	}
+	
+	/**
+	 * Same as findFirstOccurrences(haystack), but only reports occurrences
+	 * that start at an index in [start, end). The scan reads up to
+	 * maxNeedleLength() - 1 characters past end, so an occurrence that
+	 * starts in the range is found even if it ends outside it. Indexes are
+	 * still indexes into the whole haystack.
+	 * 
+	 * If start or end are out of range, or start > end, return null.
+	 * 
+	 * @param haystack The text to search.
+	 * @param start The lowest start index to report.
+	 * @param end One past the highest start index to report.
+	 * @return The first occurrence of each needle in the range.
+	 */
+	public int[] findFirstOccurrences(CharSequence haystack, int start, int end)
+	{
+		int length = haystack.length();
+		if( start < 0 || end > length || start > end )
+			return null;
+		
+		int[] first = new int[needles.length];
+		Arrays.fill(first, -1);
+		int remaining = needleIds.length;
+		
+		int state = ROOT;
+		int scanEnd = (int)Math.min(length, (long)end + maxNeedleLength - 1);
+		for( int i=start; i < scanEnd && remaining > 0; ++i )
+		{
+			state = transitions[state * alphabetSize + charClass[haystack.charAt(i)]];
+			for( int output=firstOutputState[state]; output != NO_STATE; output=nextOutputState[output] )
+			{
+				for( int j=outputStart[output]; j < outputStart[output + 1]; ++j )
+				{
+					int id = needleIds[j];
+					int index = i - needleLengths[id] + 1;
+					if( first[id] < 0 && index < end )
+					{
+						first[id] = index;
+						--remaining;
+					}
+				}
+			}
+		}
+		return first;
+	}
+	
+	/**
+	 * Reports every occurrence of every needle in haystack to listener,
+	 * including overlapping ones, in order of the index at which they end.
+	 * Nothing is buffered, so the number of occurrences is not limited by
+	 * memory.
+	 * 
+	 * @param haystack The text to search.
+	 * @param listener Receives each occurrence as it is found.
+	 */
+	public void findAllOccurrences(CharSequence haystack, OccurrenceListener listener)
+	{
+		findAllOccurrences(haystack, 0, haystack.length(), listener);
+	}
+	
+	/**
+	 * Same as findAllOccurrences(haystack, listener), but only reports
+	 * occurrences that start at an index in [start, end), reading up to
+	 * maxNeedleLength() - 1 characters past end the same way as
+	 * findFirstOccurrences(haystack, start, end). Scanning consecutive
+	 * ranges reports every occurrence exactly once.
+	 * 
+	 * @param haystack The text to search.
+	 * @param start The lowest start index to report.
+	 * @param end One past the highest start index to report.
+	 * @param listener Receives each occurrence as it is found.
+	 * @throws IndexOutOfBoundsException If start or end are out of range, or
+	 *         start > end.
+	 */
+	public void findAllOccurrences(CharSequence haystack, int start, int end, OccurrenceListener listener)
+	{
+		int length = haystack.length();
+		if( start < 0 || end > length || start > end )
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") of " + length);
+		
+		int state = ROOT;
+		int scanEnd = (int)Math.min(length, (long)end + maxNeedleLength - 1);
+		for( int i=start; i < scanEnd; ++i )
+		{
+			state = transitions[state * alphabetSize + charClass[haystack.charAt(i)]];
+			for( int output=firstOutputState[state]; output != NO_STATE; output=nextOutputState[output] )
+			{
+				for( int j=outputStart[output]; j < outputStart[output + 1]; ++j )
+				{
+					int id = needleIds[j];
+					int index = i - needleLengths[id] + 1;
+					if( index < end )
+						listener.occurrenceFound(id, index);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns, for every needle, the number of times it occurs in haystack,
+	 * counting overlapping occurrences. Entry i belongs to needles[i].
+	 * 
+	 * @param haystack The text to search.
+	 * @return The number of occurrences of each needle.
+	 */
+	public long[] countOccurrences(CharSequence haystack)
+	{
+		// Count how often each output state is reached, then push the counts
+		// to the needles once at the end instead of on every hit.
+		long[] stateCounts = new long[outputStart.length - 1];
+		int state = ROOT;
+		int length = haystack.length();
+		for( int i=0; i < length; ++i )
+		{
+			state = transitions[state * alphabetSize + charClass[haystack.charAt(i)]];
+			++stateCounts[state];
+		}
+		
+		long[] counts = new long[needles.length];
+		for( int reached=0; reached < stateCounts.length; ++reached )
+		{
+			if( stateCounts[reached] == 0 )
+				continue;
+			for( int output=firstOutputState[reached]; output != NO_STATE; output=nextOutputState[output] )
+				for( int j=outputStart[output]; j < outputStart[output + 1]; ++j )
+					counts[needleIds[j]] += stateCounts[reached];
+		}
+		return counts;
+	}
+	
+	/**
+	 * @return A new Scanner that searches text fed to it one char at a time.
+	 */
+	public Scanner scanner()
+	{
+		return new Scanner();
+	}
+	
+	/**
+	 * Searches for the needles in text that arrives one char at a time, for
+	 * when the haystack is produced on the fly and never held as a whole.
+	 * After feeding a haystack to a fresh Scanner, firstOccurrences() is
+	 * the same as findFirstOccurrences(haystack).
+	 * 
+	 * A Scanner must only be used by one thread at a time.
+	 */
+	public class Scanner
+	{
+		private final int[] first;
+		private int remaining;
+		private int state = ROOT;
+		private int position = 0;
+		
+		private Scanner()
+		{
+			first = new int[needles.length];
+			Arrays.fill(first, -1);
+			remaining = needleIds.length;
+		}
+		
+		/**
+		 * Feeds the next char of the haystack.
+		 */
+		public void accept(char next)
+		{
+			state = transitions[state * alphabetSize + charClass[next]];
+			for( int output=firstOutputState[state]; output != NO_STATE; output=nextOutputState[output] )
+			{
+				for( int j=outputStart[output]; j < outputStart[output + 1]; ++j )
+				{
+					int id = needleIds[j];
+					if( first[id] < 0 )
+					{
+						first[id] = position - needleLengths[id] + 1;
+						--remaining;
+					}
+				}
+			}
+			++position;
+		}
+		
+		/**
+		 * @return The number of chars fed so far.
+		 */
+		public int position()
+		{
+			return position;
+		}
+		
+		/**
+		 * @return Whether every needle that can be found has been found, so
+		 *         feeding more text cannot change firstOccurrences().
+		 */
+		public boolean allFound()
+		{
+			return remaining == 0;
+		}
+		
+		/**
+		 * @return The first occurrence of each needle in the text fed so
+		 *         far, or -1 for needles not found yet.
+		 */
+		public int[] firstOccurrences()
+		{
+			return first.clone();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package piwords;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class WordMatcherTest 
+{
+	private void assertFirstOccurrences(String haystack, String[] needles)
+	{
+		int[] expected = new int[needles.length];
+		for( int i=0; i < needles.length; ++i )
+			expected[i] = (needles[i] == null || needles[i].isEmpty()) ? -1 : haystack.indexOf(needles[i]);
+		assertArrayEquals(expected, new WordMatcher(needles).findFirstOccurrences(haystack));
+	}
+	
+    @Test
+    public void findFirstOccurrencesTest_Basic()
+    {
+    	assertFirstOccurrences("abcde", new String[] {"ab", "abc", "de", "fg"});
+    	assertFirstOccurrences("ushers", new String[] {"he", "she", "his", "hers"});
+    	assertFirstOccurrences("aaaa", new String[] {"aaa", "a", "aa", "aaaaa"});
+    	assertFirstOccurrences("", new String[] {"a"});
+    	assertFirstOccurrences("abc", new String[0]);
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_DuplicateEmptyAndNullNeedles()
+    {
+    	assertFirstOccurrences("cupcake", new String[] {"cup", "", "cake", "cup", null});
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_CharactersOutsideNeedles()
+    {
+    	assertFirstOccurrences("a-b c_ab\u00e9ab", new String[] {"ab", "b c", "\u00e9a", "zz"});
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_MatchesIndexOf()
+    {
+    	Random random = new Random(6005);
+    	StringBuilder haystack = new StringBuilder();
+    	for( int i=0; i < 5000; ++i )
+    		haystack.append((char)('a' + random.nextInt(6)));
+    	
+    	String[] needles = new String[200];
+    	for( int i=0; i < needles.length; ++i )
+    	{
+    		StringBuilder needle = new StringBuilder();
+    		for( int j=1 + random.nextInt(7); j > 0; --j )
+    			needle.append((char)('a' + random.nextInt(7)));
+    		needles[i] = needle.toString();
+    	}
+    	assertFirstOccurrences(haystack.toString(), needles);
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_ReusedAcrossHaystacks()
+    {
+    	WordMatcher matcher = new WordMatcher(Main.WORD_LIST);
+    	for( String haystack : new String[] {"thecatsatonthemat", "zzz", "umbrellaandyoung"} )
+    	{
+    		int[] first = matcher.findFirstOccurrences(haystack);
+    		for( int i=0; i < Main.WORD_LIST.length; ++i )
+    			assertEquals(haystack.indexOf(Main.WORD_LIST[i]), first[i]);
+    	}
+    }
+    
+    @Test
+    public void needlesTest_IsACopy()
+    {
+    	String[] needles = {"a", "b"};
+    	WordMatcher matcher = new WordMatcher(needles);
+    	needles[0] = "c";
+    	assertArrayEquals(new String[] {"a", "b"}, matcher.needles());
+    }
+    
+    @Test
+    public void findFirstOccurrencesTest_Range()
+    {
+    	WordMatcher matcher = new WordMatcher(new String[] {"ab", "bca", "c", "abcab"});
+    	assertEquals(5, matcher.maxNeedleLength());
+    	
+    	// Occurrences may end past the range, but must start inside it.
+    	assertArrayEquals(new int[] {3, 1, 2, -1}, matcher.findFirstOccurrences("abcabc", 1, 4));
+    	assertArrayEquals(new int[] {-1, -1, 2, -1}, matcher.findFirstOccurrences("abcabc", 2, 3));
+    	assertArrayEquals(new int[] {-1, -1, -1, -1}, matcher.findFirstOccurrences("abcabc", 3, 3));
+    	assertArrayEquals(matcher.findFirstOccurrences("abcabc"), matcher.findFirstOccurrences("abcabc", 0, 6));
+    	
+    	assertNull(matcher.findFirstOccurrences("abc", -1, 2));
+    	assertNull(matcher.findFirstOccurrences("abc", 0, 4));
+    	assertNull(matcher.findFirstOccurrences("abc", 2, 1));
+    }
+    
+    @Test
+    public void findAllOccurrencesTest_MatchesBruteForce()
+    {
+    	Random random = new Random(6005);
+    	char[] text = new char[2000];
+    	for( int i=0; i < text.length; ++i )
+    		text[i] = (char)('a' + random.nextInt(3));
+    	String haystack = new String(text);
+    	String[] needles = {"a", "ab", "aba", "bab", "ccc", "abcabc", "x", "", null, "ab"};
+    	WordMatcher matcher = new WordMatcher(needles);
+    	
+    	OccurrenceList found = new OccurrenceList(needles.length);
+    	matcher.findAllOccurrences(haystack, found);
+    	long[] counts = matcher.countOccurrences(haystack);
+    	assertArrayEquals(found.counts(), counts);
+    	
+    	long total = 0;
+    	for( int i=0; i < needles.length; ++i )
+    	{
+    		int expected = 0;
+    		if( needles[i] != null && !needles[i].isEmpty() )
+    			for( int j=haystack.indexOf(needles[i]); j >= 0; j=haystack.indexOf(needles[i], j + 1) )
+    				++expected;
+    		assertEquals(expected, counts[i]);
+    		total += expected;
+    	}
+    	assertEquals(total, found.size());
+    	
+    	int lastEnd = -1;
+    	for( long i=0; i < found.size(); ++i )
+    	{
+    		String needle = needles[found.needleId(i)];
+    		int index = found.index(i);
+    		assertTrue(haystack.startsWith(needle, index));
+    		assertTrue(index + needle.length() - 1 >= lastEnd);
+    		lastEnd = index + needle.length() - 1;
+    	}
+    }
+    
+    @Test
+    public void findAllOccurrencesTest_Ranges()
+    {
+    	String haystack = "abababcabab";
+    	WordMatcher matcher = new WordMatcher(new String[] {"ab", "abc", "bab"});
+    	OccurrenceList whole = new OccurrenceList(3);
+    	matcher.findAllOccurrences(haystack, whole);
+    	
+    	// Consecutive ranges report each occurrence once, in the range it
+    	// starts in.
+    	OccurrenceList pieces = new OccurrenceList(3);
+    	for( int start=0; start < haystack.length(); start += 3 )
+    		matcher.findAllOccurrences(haystack, start, Math.min(haystack.length(), start + 3), pieces);
+    	assertEquals(whole.size(), pieces.size());
+    	assertArrayEquals(whole.counts(), pieces.counts());
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void findAllOccurrencesTest_BadRange()
+    {
+    	new WordMatcher(new String[] {"a"}).findAllOccurrences("abc", 2, 1, new OccurrenceList(1));
+    }
+    
+    @Test
+    public void scannerTest_MatchesFindFirstOccurrences()
+    {
+    	String haystack = "xabcabdabe";
+    	WordMatcher matcher = new WordMatcher(new String[] {"ab", "abd", "e", "q", ""});
+    	WordMatcher.Scanner scanner = matcher.scanner();
+    	for( int i=0; i < 6; ++i )
+    		scanner.accept(haystack.charAt(i));
+    	assertArrayEquals(new int[] {1, -1, -1, -1, -1}, scanner.firstOccurrences());
+    	assertFalse(scanner.allFound());
+    	
+    	for( int i=6; i < haystack.length(); ++i )
+    		scanner.accept(haystack.charAt(i));
+    	assertEquals(haystack.length(), scanner.position());
+    	assertArrayEquals(matcher.findFirstOccurrences(haystack), scanner.firstOccurrences());
+    	
+    	assertFalse(new WordMatcher(new String[] {"b"}).scanner().allFound());
+    	WordMatcher.Scanner single = new WordMatcher(new String[] {"b"}).scanner();
+    	single.accept('b');
+    	assertTrue(single.allFound());
+    }
+
+}